@@ -0,0 +1,206 @@
+package com.example.bankconsole;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Checks ConnectionPool's borrow/return/close behaviour against an in-process stub driver (no database
+// needed): exhaustion and the borrow timeout, a waiter being handed a returned connection, proxies after
+// close, eviction of idle connections that fail validation, no validation of recently used ones, and
+// statements, result sets and metadata leading back to the pooled connection rather than the physical one.
+// Exits with status 1 if any check fails.
+//
+//   java -cp out com.example.bankconsole.ConnectionPoolCheck
+public class ConnectionPoolCheck {
+
+    private static final String URL = "jdbc:poolcheck:";
+    private static final List<StubConnection> opened = new ArrayList<>();
+    private static final AtomicInteger validations = new AtomicInteger();
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        DriverManager.registerDriver(new StubDriver());
+        exhaustionAndTimeout();
+        waiterGetsReturnedConnection();
+        closedProxy();
+        invalidConnectionEvicted();
+        recentConnectionNotValidated();
+        childrenLeadBackToPool();
+        System.out.println(failures == 0 ? "All pool checks passed." : failures + " pool checks failed.");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static void exhaustionAndTimeout() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(URL, "", "", 0, 2, 200, 0)) {
+            Connection a = pool.getConnection();
+            Connection b = pool.getConnection();
+            long start = System.nanoTime();
+            boolean timedOut = false;
+            try {
+                pool.getConnection().close();
+            } catch (SQLException e) {
+                timedOut = true;
+            }
+            long waitedMs = (System.nanoTime() - start) / 1_000_000;
+            check("borrow from an exhausted pool times out", timedOut && waitedMs >= 150);
+            check("timeout is counted", pool.getTimeoutCount() == 1);
+            check("pool never exceeds max", pool.getTotalConnections() == 2);
+            a.close();
+            b.close();
+            check("returned connections are idle", pool.getIdleConnections() == 2 && pool.getActiveConnections() == 0);
+        }
+    }
+
+    private static void waiterGetsReturnedConnection() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(URL, "", "", 0, 1, 5000, 0)) {
+            Connection held = pool.getConnection();
+            boolean[] got = new boolean[1];
+            Thread waiter = new Thread(() -> {
+                try (Connection c = pool.getConnection()) {
+                    got[0] = !c.isClosed();
+                } catch (SQLException e) {
+                    got[0] = false;
+                }
+            });
+            waiter.start();
+            Thread.sleep(100);
+            held.close();
+            waiter.join(5000);
+            check("waiting borrower gets the returned connection", got[0] && pool.getWaitCount() == 1);
+            check("no extra connection was opened", pool.getCreatedCount() == 1);
+        }
+    }
+
+    private static void closedProxy() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(URL, "", "", 0, 1, 200, 0)) {
+            Connection c = pool.getConnection();
+            c.close();
+            c.close(); // second close is a no-op, not a second return
+            check("double close returns once", pool.getIdleConnections() == 1);
+            check("returned proxy reports closed", c.isClosed());
+            boolean rejected = false;
+            try {
+                c.createStatement();
+            } catch (SQLException e) {
+                rejected = true;
+            }
+            check("returned proxy can't be used", rejected);
+        }
+    }
+
+    private static void invalidConnectionEvicted() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(URL, "", "", 0, 2, 200, 0, 0)) {
+            int before = opened.size();
+            pool.getConnection().close();
+            opened.get(before).valid = false; // e.g. the server dropped it while idle
+            try (Connection c = pool.getConnection()) {
+                check("broken idle connection is replaced", !c.isClosed() && opened.size() == before + 2);
+            }
+            check("validation failure is counted", pool.getValidationFailures() == 1);
+            check("evicted connection was closed", opened.get(before).closed);
+            check("evicted connection freed its slot", pool.getTotalConnections() == 1);
+        }
+    }
+
+    private static void recentConnectionNotValidated() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(URL, "", "", 1, 2, 200, 0, 60_000)) {
+            int before = validations.get();
+            for (int i = 0; i < 100; i++) pool.getConnection().close();
+            check("recently idle connections are not validated", validations.get() == before);
+        }
+    }
+
+    private static void childrenLeadBackToPool() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(URL, "", "", 0, 1, 200, 0)) {
+            try (Connection c = pool.getConnection()) {
+                Statement st = c.createStatement();
+                PreparedStatement ps = c.prepareStatement("SELECT 1");
+                ResultSet rs = ps.executeQuery();
+                DatabaseMetaData md = c.getMetaData();
+                check("statement returns the pooled connection", st.getConnection() == c && ps.getConnection() == c);
+                check("result set returns its pooled statement", rs.getStatement() == ps);
+                check("metadata returns the pooled connection", md.getConnection() == c);
+                st.getConnection().close(); // returns c to the pool instead of closing the physical connection
+            }
+            check("closing through a statement returns the connection", pool.getIdleConnections() == 1
+                    && !opened.get(opened.size() - 1).closed);
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "PASS " : "FAIL ") + what);
+        if (!ok) failures++;
+    }
+
+    // Connection stand-in: only what the pool calls does anything. Its statements, result sets and
+    // metadata report the physical connection (and statement), as a driver's do.
+    private static final class StubConnection {
+        volatile boolean valid = true;
+        volatile boolean closed = false;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPoolCheck.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (p, m, a) -> {
+                        switch (m.getName()) {
+                            case "isValid": validations.incrementAndGet(); return valid && !closed;
+                            case "isClosed": return closed;
+                            case "close": closed = true; return null;
+                            case "getAutoCommit": return true;
+                            case "createStatement":
+                            case "prepareStatement": return stub(m.getReturnType(), (Connection) p, null);
+                            case "getMetaData": return stub(DatabaseMetaData.class, (Connection) p, null);
+                            case "equals": return p == a[0];
+                            case "hashCode": return System.identityHashCode(p);
+                            default: return null;
+                        }
+                    });
+        }
+
+        private static Object stub(Class<?> type, Connection physical, Object statement) {
+            return Proxy.newProxyInstance(ConnectionPoolCheck.class.getClassLoader(), new Class<?>[]{type}, (p, m, a) -> {
+                switch (m.getName()) {
+                    case "getConnection": return physical;
+                    case "getStatement": return statement;
+                    case "executeQuery": return stub(ResultSet.class, physical, p);
+                    case "equals": return p == a[0];
+                    case "hashCode": return System.identityHashCode(p);
+                    default: return null;
+                }
+            });
+        }
+    }
+
+    private static final class StubDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) return null;
+            StubConnection c = new StubConnection();
+            synchronized (opened) {
+                opened.add(c);
+            }
+            return c.proxy();
+        }
+
+        @Override public boolean acceptsURL(String url) { return url.startsWith(URL); }
+        @Override public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) { return new DriverPropertyInfo[0]; }
+        @Override public int getMajorVersion() { return 1; }
+        @Override public int getMinorVersion() { return 0; }
+        @Override public boolean jdbcCompliant() { return false; }
+        @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
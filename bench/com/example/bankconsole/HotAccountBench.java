@@ -0,0 +1,88 @@
+package com.example.bankconsole;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contention run against the configured database (see bank.db.* properties): many payers transfer to one
+// merchant account, once with the merchant as a normal account and once as a hot account with the given
+// number of slots (see BankJdbc.setHotAccount). Every tenth operation is a merchant withdrawal, so the
+// fold-on-debit path runs too. The total money must be unchanged at the end of each round.
+//
+//   java -cp out:h2.jar -Dbank.db.url=jdbc:h2:mem:bank com.example.bankconsole.HotAccountBench [payers] [threads] [opsPerThread] [slots]
+public class HotAccountBench {
+
+    public static void main(String[] args) throws Exception {
+        int payers = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int slots = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+        BankJdbc bank = new BankJdbc(DBConnection.pool());
+        boolean ok = round(bank, payers, threads, perThread, 0)
+                & round(bank, payers, threads, perThread, slots);
+        System.out.println(bank.getPool());
+        DBConnection.shutdown();
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean round(BankJdbc bank, int payers, int threads, int perThread, int slots) throws Exception {
+        int merchant = bank.createAccount("merchant", 1234, 0).getAccountNumber();
+        int[] accNos = new int[payers + 1];
+        accNos[0] = merchant;
+        for (int i = 1; i <= payers; i++) {
+            accNos[i] = bank.createAccount("payer-" + i, 1234, 1_000_000).getAccountNumber();
+        }
+        if (slots > 0 && !bank.setHotAccount(merchant, slots)) return false;
+        double before = total(bank, accNos);
+        bank.getMetrics().reset();
+
+        AtomicLong done = new AtomicLong(), rejected = new AtomicLong(), withdrawn = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    boolean r;
+                    if (i % 10 == 9) {
+                        int amount = 1 + rnd.nextInt(50);
+                        r = bank.withdraw(merchant, amount);
+                        if (r) withdrawn.addAndGet(amount);
+                    } else {
+                        r = bank.transfer(accNos[1 + rnd.nextInt(payers)], merchant, 1 + rnd.nextInt(50));
+                    }
+                    if (r) done.incrementAndGet();
+                    else rejected.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        if (slots > 0) bank.consolidateHotAccounts();
+        double after = total(bank, accNos) + withdrawn.get();
+        boolean conserved = Math.abs(before - after) < 0.001;
+        System.out.printf("slots=%d threads=%d ops=%d ok=%d rejected=%d %.0f ops/s transfer p99=%.0fus retries=%d%n",
+                slots, threads, threads * perThread, done.get(), rejected.get(), threads * perThread / secs,
+                bank.getMetrics().histogram(OpType.TRANSFER).getPercentile(99) / 1e3,
+                bank.getMetrics().getRetries(OpType.TRANSFER) + bank.getMetrics().getRetries(OpType.WITHDRAW));
+        System.out.printf("total before=%.2f after=%.2f -> %s%n", before, after, conserved ? "CONSERVED" : "MISMATCH");
+        return conserved;
+    }
+
+    private static double total(BankJdbc bank, int[] accNos) {
+        double sum = 0;
+        List<Account> all = bank.listAccounts();
+        for (Account a : all) {
+            for (int n : accNos) {
+                if (a.getAccountNumber() == n) sum += a.getBalance();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bankconsole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Random transfers across a ShardedBankJdbc from many threads; most of them cross shards.
+// Afterwards the money summed over all shards must be unchanged and no saga may be left unfinished.
+// By default the shards are separate in-memory H2 databases (H2 jar on the classpath); set
+// -Dbank.shards.urls=url0,url1,... to use real ones.
+//
+//   java -cp out:h2.jar com.example.bankconsole.ShardedTransferStress [shards] [accounts] [threads] [transfersPerThread]
+public class ShardedTransferStress {
+
+    public static void main(String[] args) throws Exception {
+        int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int perThread = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        if (System.getProperty("bank.shards.urls") == null) {
+            StringBuilder urls = new StringBuilder();
+            for (int i = 0; i < shardCount; i++) {
+                if (i > 0) urls.append(',');
+                urls.append("jdbc:h2:mem:shard").append(i).append(";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            }
+            System.setProperty("bank.shards.urls", urls.toString());
+            System.setProperty("bank.db.driver", System.getProperty("bank.db.driver", "org.h2.Driver"));
+        }
+        File log = File.createTempFile("sagas", ".log");
+        ShardedBankJdbc bank = new ShardedBankJdbc(pools(), log);
+
+        int[] accNos = new int[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accNos[i] = bank.createAccount("stress-" + i, 1234, 1000).getAccountNumber();
+        }
+        double before = total(bank);
+
+        AtomicLong ok = new AtomicLong(), rejected = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    int from = accNos[rnd.nextInt(accounts)];
+                    int to = accNos[rnd.nextInt(accounts)];
+                    if (from != to && bank.transfer(from, to, 1 + rnd.nextInt(50))) ok.incrementAndGet();
+                    else rejected.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        bank.recover();
+        double after = total(bank);
+        int unfinished = bank.getUnfinishedTransfers().size();
+        System.out.printf("shards=%d threads=%d transfers=%d ok=%d rejected=%d %.0f ops/s unfinished=%d%n",
+                bank.getShardCount(), threads, threads * perThread, ok.get(), rejected.get(), threads * perThread / secs, unfinished);
+        System.out.printf("total before=%.2f after=%.2f -> %s%n", before, after,
+                Math.abs(before - after) < 0.001 ? "CONSERVED" : "MISMATCH");
+        bank.close();
+        log.delete();
+        if (Math.abs(before - after) >= 0.001 || unfinished > 0) System.exit(1);
+    }
+
+    private static List<ConnectionPool> pools() {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : System.getProperty("bank.shards.urls").split(",")) pools.add(DBConnection.createPool(url.trim()));
+        return pools;
+    }
+
+    private static double total(ShardedBankJdbc bank) {
+        double[] sum = {0};
+        bank.forEachAccount(a -> sum[0] += a.getBalance());
+        return sum[0];
+    }
+}
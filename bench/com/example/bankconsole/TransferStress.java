@@ -0,0 +1,67 @@
+package com.example.bankconsole;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Multi-threaded transfer stress run against the configured database (see bank.db.* properties).
+// Random transfers between a small set of accounts; the total money must be unchanged at the end.
+//
+//   java -cp out:h2.jar -Dbank.db.url=jdbc:h2:mem:bank com.example.bankconsole.TransferStress [accounts] [threads] [transfersPerThread] [mode]
+public class TransferStress {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        ConcurrencyMode mode = args.length > 3 ? ConcurrencyMode.valueOf(args[3]) : ConcurrencyMode.STRIPED_LOCKS;
+
+        BankJdbc bank = new BankJdbc(DBConnection.pool(), mode);
+        int[] accNos = new int[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accNos[i] = bank.createAccount("stress-" + i, 1234, 1000).getAccountNumber();
+        }
+        double before = total(bank, accNos);
+
+        AtomicLong ok = new AtomicLong(), rejected = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    int from = accNos[rnd.nextInt(accounts)];
+                    int to = accNos[rnd.nextInt(accounts)];
+                    if (bank.transfer(from, to, 1 + rnd.nextInt(50))) ok.incrementAndGet();
+                    else rejected.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        double after = total(bank, accNos);
+        System.out.printf("mode=%s threads=%d transfers=%d ok=%d rejected=%d %.0f ops/s%n",
+                mode, threads, threads * perThread, ok.get(), rejected.get(), threads * perThread / secs);
+        System.out.printf("total before=%.2f after=%.2f -> %s%n", before, after,
+                Math.abs(before - after) < 0.001 ? "CONSERVED" : "MISMATCH");
+        System.out.println(bank.getPool());
+        DBConnection.shutdown();
+        if (Math.abs(before - after) >= 0.001) System.exit(1);
+    }
+
+    private static double total(BankJdbc bank, int[] accNos) {
+        double sum = 0;
+        List<Account> all = bank.listAccounts();
+        for (Account a : all) {
+            for (int n : accNos) {
+                if (a.getAccountNumber() == n) sum += a.getBalance();
+            }
+        }
+        return sum;
+    }
+}
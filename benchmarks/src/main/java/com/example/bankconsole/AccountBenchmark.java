@@ -0,0 +1,44 @@
+package com.example.bankconsole;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Account.deposit and Account.withdraw on one account shared by all benchmark threads (-t), so more than
+// one thread measures contention on its monitor. The account is recreated every iteration: each call adds
+// to its in-memory history.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AccountBenchmark {
+
+    private Account account;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        account = new Account(1001, "bench", 1234, 1e12);
+    }
+
+    @Benchmark
+    public void deposit() {
+        account.deposit(1);
+    }
+
+    @Benchmark
+    public boolean withdraw() {
+        return account.withdraw(1);
+    }
+}
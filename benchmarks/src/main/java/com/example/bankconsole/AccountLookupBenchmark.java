@@ -0,0 +1,60 @@
+package com.example.bankconsole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The linear scan Bank.findAccount used to do against the AccountIndex lookup, for random account numbers.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class AccountLookupBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int accounts;
+
+    private List<Account> list;
+    private AccountIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = new ArrayList<>(accounts);
+        index = new AccountIndex(accounts);
+        for (int i = 0; i < accounts; i++) {
+            Account a = new Account(1001 + i, "holder-" + i, 1234, 100);
+            list.add(a);
+            index.put(a);
+        }
+    }
+
+    @Benchmark
+    public Account linearScan() {
+        int key = 1001 + ThreadLocalRandom.current().nextInt(accounts);
+        for (Account a : list) {
+            if (a.getAccountNumber() == key) return a;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Account accountIndex() {
+        return index.get(1001 + ThreadLocalRandom.current().nextInt(accounts));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bankconsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The file-backed Bank: findAccount, deposit (one journal append) and snapshot, the full save every write
+// used to cost before the journal. Journal fsync is left to the OS and no automatic snapshots are taken
+// while measuring. Data set sizes: -p accounts=1000,100000 -p history=10,1000.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class BankBenchmark {
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int history;
+
+    private File dir;
+    private Bank bank;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("bank-bench").toFile();
+        bank = new Bank(new File(dir, "bank.ser").getPath(), 0, 0);
+        for (int i = 0; i < accounts; i++) {
+            Account a = bank.createAccount("holder-" + i, 1234, 1000);
+            for (int k = 1; k < history; k++) bank.deposit(a.getAccountNumber(), 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bank.close();
+        deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Optional<Account> findAccount() {
+        return bank.findAccount(1001 + ThreadLocalRandom.current().nextInt(accounts));
+    }
+
+    @Benchmark
+    public boolean deposit() {
+        return bank.deposit(1001 + ThreadLocalRandom.current().nextInt(accounts), 1);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void snapshot() {
+        bank.snapshot();
+    }
+
+    private static void deleteRecursively(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteRecursively(c);
+        }
+        f.delete();
+    }
+}
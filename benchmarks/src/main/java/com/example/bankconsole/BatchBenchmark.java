@@ -0,0 +1,99 @@
+package com.example.bankconsole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One-at-a-time deposits, withdrawals and transfers against BankJdbc.executeBatch at -p batchSize=...,
+// on the same mixed workload of OPERATIONS operations. Scores are operations per second.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class BatchBenchmark {
+
+    static final int OPERATIONS = 1000;
+
+    @Param({"100"})
+    public int accounts;
+
+    @Param({"50", "500"})
+    public int batchSize;
+
+    private BankJdbc bank;
+    private List<BatchOperation> ops;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.useEmbeddedDefault();
+        BenchDatabase.resetSchema();
+        bank = new BankJdbc();
+        int first = BenchDatabase.populate(bank, accounts, 1);
+        ops = workload(first, accounts, new Random(42));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DBConnection.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int single() {
+        int ok = 0;
+        for (BatchOperation op : ops) {
+            boolean r;
+            switch (op.getKind()) {
+                case DEPOSIT: r = bank.deposit(op.getAccountNumber(), op.getAmount()); break;
+                case WITHDRAW: r = bank.withdraw(op.getAccountNumber(), op.getAmount()); break;
+                default: r = bank.transfer(op.getAccountNumber(), op.getToAccountNumber(), op.getAmount()); break;
+            }
+            if (r) ok++;
+        }
+        return ok;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public BatchResult batch() {
+        return bank.executeBatch(ops, batchSize);
+    }
+
+    // Mixed deposits, withdrawals and transfers between distinct accounts.
+    private static List<BatchOperation> workload(int first, int accounts, Random rnd) {
+        List<BatchOperation> ops = new ArrayList<>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            int a = rnd.nextInt(accounts);
+            double amount = 1 + rnd.nextInt(100);
+            int kind = rnd.nextInt(3);
+            if (kind == 0) {
+                ops.add(BatchOperation.deposit(first + a, amount));
+            } else if (kind == 1) {
+                ops.add(BatchOperation.withdraw(first + a, amount));
+            } else {
+                int b = (a + 1 + rnd.nextInt(accounts - 1)) % accounts;
+                ops.add(BatchOperation.transfer(first + a, first + b, amount));
+            }
+        }
+        return ops;
+    }
+}
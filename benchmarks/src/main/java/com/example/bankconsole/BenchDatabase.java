@@ -0,0 +1,55 @@
+package com.example.bankconsole;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Database setup shared by the JDBC benchmarks. Unless bank.db.url is given, they run against an in-memory
+// H2 database in MySQL mode standing in for MySQL.
+final class BenchDatabase {
+
+    private static final String[] TABLES = {
+        "transactions", "accounts", "account_sequence", "daily_rollups", "balance_checkpoints", "saga_steps",
+        "replica_heartbeat", "ledger_watermark", "account_slots", "schema_version"
+    };
+
+    private BenchDatabase() {
+    }
+
+    // Must run before anything touches DBConnection, which reads these once.
+    static void useEmbeddedDefault() {
+        if (System.getProperty("bank.db.url") != null) return;
+        System.setProperty("bank.db.url", "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        System.setProperty("bank.db.driver", "org.h2.Driver");
+        System.setProperty("bank.db.user", "sa");
+        System.setProperty("bank.db.password", "");
+    }
+
+    // Fresh tables for each data set, created by the same migrations BankJdbc runs.
+    static void resetSchema() throws SQLException {
+        try (Connection con = DBConnection.getConnection(); Statement st = con.createStatement()) {
+            for (String table : TABLES) st.executeUpdate("DROP TABLE IF EXISTS " + table);
+        }
+        new SchemaManager(DBConnection.pool()).migrate();
+    }
+
+    // A bank with the given number of accounts, each with history ledger rows (the opening one included).
+    // Returns the first account number; the rest follow it.
+    static int populate(BankJdbc bank, int accounts, int history) {
+        int first = -1;
+        List<BatchOperation> fill = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            int accNo = bank.createAccount("holder-" + i, 1234, 1_000_000).getAccountNumber();
+            if (first < 0) first = accNo;
+            for (int k = 1; k < history; k++) fill.add(BatchOperation.deposit(accNo, 1));
+            if (fill.size() >= 10_000) {
+                bank.executeBatch(fill, 1000);
+                fill.clear();
+            }
+        }
+        bank.executeBatch(fill, 1000);
+        return first;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankconsole;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// BankJdbc's write and history paths against the embedded database (see BenchDatabase), on random accounts
+// of a freshly built data set. Data set sizes: -p accounts=1000,100000 -p history=10,1000.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JdbcBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int history;
+
+    private BankJdbc bank;
+    private int first;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchDatabase.useEmbeddedDefault();
+        BenchDatabase.resetSchema();
+        bank = new BankJdbc();
+        first = BenchDatabase.populate(bank, accounts, history);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DBConnection.shutdown();
+    }
+
+    private int anyAccount() {
+        return first + ThreadLocalRandom.current().nextInt(accounts);
+    }
+
+    @Benchmark
+    public boolean deposit() {
+        return bank.deposit(anyAccount(), 1);
+    }
+
+    @Benchmark
+    public boolean withdraw() {
+        return bank.withdraw(anyAccount(), 1);
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        int from = anyAccount();
+        int to = first + (from - first + 1 + ThreadLocalRandom.current().nextInt(accounts - 1)) % accounts;
+        return bank.transfer(from, to, 1);
+    }
+
+    @Benchmark
+    public Optional<Account> findAccount() {
+        return bank.findAccount(anyAccount());
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactions() {
+        return bank.getTransactions(anyAccount());
+    }
+
+    @Benchmark
+    public TransactionPage getTransactionsPage() {
+        return bank.getTransactionsPage(anyAccount(), null, 20);
+    }
+}
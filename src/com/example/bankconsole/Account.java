@@ -1,8 +1,9 @@
 package com.example.bankconsole;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.List;
 
 public class Account implements Serializable {
@@ -14,49 +15,98 @@ public class Account implements Serializable {
     private final String holderName;
     private final int pin; // simple 4-digit pin (int)
     private double balance;
-    private final List<Transaction> transactions = new ArrayList<>();
+    private TransactionHistory history = new TransactionHistory();
+    private List<Transaction> transactions; // only set when reading data files written before TransactionHistory
+    private boolean balanceOnly;            // history not kept, see balanceOnly()
 
     public Account(int accountNumber, String holderName, int pin, double initialDeposit) {
+        this(accountNumber, holderName, pin, initialDeposit, System.currentTimeMillis());
+    }
+
+    // The package-private overloads taking 'at' record the given time; Bank uses them
+    // so that operations replayed from its journal keep their original timestamps.
+    Account(int accountNumber, String holderName, int pin, double initialDeposit, long at) {
         this.accountNumber = accountNumber;
         this.holderName = holderName;
         this.pin = pin;
         this.balance = initialDeposit;
-        transactions.add(new Transaction("OPEN", initialDeposit, balance));
+        record(Transaction.OPEN, initialDeposit, at);
+    }
+
+    // An account that tracks only its balance, for LedgerEngine: its history lives in the database, and
+    // keeping it in memory as well would grow without bound at the engine's rates.
+    static Account balanceOnly(int accountNumber, String holderName, int pin, double balance) {
+        Account a = new Account(accountNumber, holderName, pin, balance, 0L);
+        a.history = new TransactionHistory();
+        a.balanceOnly = true;
+        return a;
+    }
+
+    // Consistent copy of this account's current state, without history.
+    synchronized Account copyBalanceOnly() {
+        return balanceOnly(accountNumber, holderName, pin, balance);
     }
 
     public int getAccountNumber() { return accountNumber; }
     public String getHolderName() { return holderName; }
     public boolean checkPin(int attempt) { return this.pin == attempt; }
     public double getBalance() { return balance; }
-    public List<Transaction> getTransactions() { return new ArrayList<>(transactions); }
+    // Read-only view of the history as it is now (not a copy)
+    public List<Transaction> getTransactions() { return history.view(); }
+    public TransactionHistory getHistory() { return history; }
+
+    private void record(byte type, double amount, long at) {
+        if (balanceOnly) return;
+        history.add(type, Transaction.toMinor(amount), Transaction.toMinor(balance), at);
+    }
+
+    public void deposit(double amount) { deposit(amount, System.currentTimeMillis()); }
 
-    public synchronized void deposit(double amount) {
+    synchronized void deposit(double amount, long at) {
         if (amount <= 0) throw new IllegalArgumentException("Amount must be positive.");
         balance += amount;
-        transactions.add(new Transaction("DEPOSIT", amount, balance));
+        record(Transaction.DEPOSIT, amount, at);
     }
 
-    public synchronized boolean withdraw(double amount) {
+    public boolean withdraw(double amount) { return withdraw(amount, System.currentTimeMillis()); }
+
+    synchronized boolean withdraw(double amount, long at) {
         if (amount <= 0) throw new IllegalArgumentException("Amount must be positive.");
         if (amount > balance) return false;
         balance -= amount;
-        transactions.add(new Transaction("WITHDRAW", amount, balance));
+        record(Transaction.WITHDRAW, amount, at);
         return true;
     }
 
     // used for transfers: record transfer-out or transfer-in
-    public synchronized boolean transferOut(double amount) {
+    public boolean transferOut(double amount) { return transferOut(amount, System.currentTimeMillis()); }
+
+    synchronized boolean transferOut(double amount, long at) {
         if (amount <= 0) throw new IllegalArgumentException("Amount must be positive.");
         if (amount > balance) return false;
         balance -= amount;
-        transactions.add(new Transaction("TRANSFER_OUT", amount, balance));
+        record(Transaction.TRANSFER_OUT, amount, at);
         return true;
     }
 
-    public synchronized void transferIn(double amount) {
+    public void transferIn(double amount) { transferIn(amount, System.currentTimeMillis()); }
+
+    synchronized void transferIn(double amount, long at) {
         if (amount <= 0) throw new IllegalArgumentException("Amount must be positive.");
         balance += amount;
-        transactions.add(new Transaction("TRANSFER_IN", amount, balance));
+        record(Transaction.TRANSFER_IN, amount, at);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (history == null) {
+            // older data file: convert the List<Transaction> into the columnar history
+            history = new TransactionHistory();
+            if (transactions != null) {
+                for (Transaction t : transactions) history.add(t);
+            }
+        }
+        transactions = null;
     }
 
     @Override
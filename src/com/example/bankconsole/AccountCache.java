@@ -0,0 +1,119 @@
+package com.example.bankconsole;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded LRU cache of account rows for BankJdbc.findAccount / authenticate.
+//
+// BankJdbc invalidates an entry whenever it writes that account. The TTL bounds how long a
+// change made by another node (which can't invalidate our copy) stays invisible.
+// A load that raced with a write is not cached: each account maps to a version stripe that
+// invalidate() bumps, and putIfUnchanged() drops the value if its stripe moved since the load began.
+public class AccountCache {
+    private static final int VERSION_STRIPES = 256;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Integer, Entry> map;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Entry {
+        final Account account;
+        final long expiresAt;
+
+        Entry(Account account, long expiresAt) {
+            this.account = account;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public AccountCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Cache size must be positive.");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.map = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > AccountCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static int stripe(int accNo) {
+        int h = accNo * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    public synchronized Account get(int accNo) {
+        Entry e = map.get(accNo);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (ttlMillis > 0 && System.currentTimeMillis() > e.expiresAt) {
+            map.remove(accNo);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.account;
+    }
+
+    // Read before loading from the database; pass to putIfUnchanged.
+    public long version(int accNo) {
+        return versions.get(stripe(accNo));
+    }
+
+    public synchronized void putIfUnchanged(Account account, long versionBeforeLoad) {
+        if (versions.get(stripe(account.getAccountNumber())) != versionBeforeLoad) return;
+        put(account);
+    }
+
+    public synchronized void put(Account account) {
+        long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+        map.put(account.getAccountNumber(), new Entry(account, expiresAt));
+    }
+
+    public synchronized void invalidate(int accNo) {
+        versions.incrementAndGet(stripe(accNo));
+        if (map.remove(accNo) != null) invalidations.increment();
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < VERSION_STRIPES; i++) versions.incrementAndGet(i);
+        map.clear();
+    }
+
+    public synchronized int size() { return map.size(); }
+    public int getMaxSize() { return maxSize; }
+    public long getTtlMillis() { return ttlMillis; }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getExpirations() { return expirations.sum(); }
+    public long getInvalidations() { return invalidations.sum(); }
+
+    public double getHitRate() {
+        long h = getHits(), total = h + getMisses();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AccountCache{size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expirations=%d, invalidations=%d}",
+                size(), maxSize, getHits(), getMisses(), getHitRate() * 100, getEvictions(), getExpirations(), getInvalidations());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankconsole;
+
+import java.util.Arrays;
+
+// Open-addressing hash map from account number to Account with primitive int keys
+// (no Integer boxing, no per-entry node objects). Linear probing; grows at 50% load.
+// Entries are never removed, matching Bank, which never deletes accounts.
+// Not thread-safe: Bank only touches it while holding its own lock.
+public class AccountIndex {
+    private static final int EMPTY = 0; // account numbers start at 1001, so 0 marks a free slot
+
+    private int[] keys;
+    private Account[] values;
+    private int size;
+    private int mask;
+
+    public AccountIndex() {
+        this(16);
+    }
+
+    public AccountIndex(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        keys = new int[capacity];
+        values = new Account[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public Account get(int accNo) {
+        if (accNo == EMPTY) return null;
+        int[] k = keys;
+        int m = mask;
+        for (int i = hash(accNo) & m; ; i = (i + 1) & m) {
+            int key = k[i];
+            if (key == accNo) return values[i];
+            if (key == EMPTY) return null;
+        }
+    }
+
+    public void put(Account account) {
+        int accNo = account.getAccountNumber();
+        if (accNo == EMPTY) throw new IllegalArgumentException("Account number 0 is reserved.");
+        if ((size + 1) * 2 > keys.length) resize(keys.length << 1);
+        if (insert(keys, values, mask, accNo, account)) size++;
+    }
+
+    // returns true when a new key was added
+    private static boolean insert(int[] k, Account[] v, int m, int accNo, Account account) {
+        for (int i = hash(accNo) & m; ; i = (i + 1) & m) {
+            if (k[i] == EMPTY) {
+                k[i] = accNo;
+                v[i] = account;
+                return true;
+            }
+            if (k[i] == accNo) {
+                v[i] = account;
+                return false;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] newKeys = new int[capacity];
+        Account[] newValues = new Account[capacity];
+        int newMask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) insert(newKeys, newValues, newMask, keys[i], values[i]);
+        }
+        values = newValues;
+        keys = newKeys;
+        mask = newMask;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() { return size; }
+}
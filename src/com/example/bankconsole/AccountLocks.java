@@ -0,0 +1,53 @@
+package com.example.bankconsole;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed set of lock stripes keyed by account number.
+// Unrelated accounts usually land on different stripes, so they can be updated concurrently.
+public class AccountLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocks(int stripeCount) {
+        int n = 1;
+        while (n < stripeCount) n <<= 1; // power of two so we can mask instead of mod
+        stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) stripes[i] = new ReentrantLock();
+        mask = n - 1;
+    }
+
+    private int stripeIndex(int accNo) {
+        int h = accNo * 0x9E3779B9; // spread sequential account numbers
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public void lock(int accNo) {
+        stripes[stripeIndex(accNo)].lock();
+    }
+
+    public void unlock(int accNo) {
+        stripes[stripeIndex(accNo)].unlock();
+    }
+
+    // Lock two accounts in stripe order so concurrent A->B and B->A transfers can't deadlock.
+    public void lockBoth(int a, int b) {
+        int ia = stripeIndex(a), ib = stripeIndex(b);
+        if (ia == ib) {
+            stripes[ia].lock();
+        } else if (ia < ib) {
+            stripes[ia].lock();
+            stripes[ib].lock();
+        } else {
+            stripes[ib].lock();
+            stripes[ia].lock();
+        }
+    }
+
+    public void unlockBoth(int a, int b) {
+        int ia = stripeIndex(a), ib = stripeIndex(b);
+        stripes[ia].unlock();
+        if (ia != ib) stripes[ib].unlock();
+    }
+
+    public int getStripeCount() { return stripes.length; }
+}
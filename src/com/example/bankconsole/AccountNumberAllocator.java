@@ -0,0 +1,171 @@
+package com.example.bankconsole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.OptionalInt;
+
+// Hands out account numbers from blocks reserved in the account_sequence table.
+// Every node reserves its own block of blockSize numbers in one short transaction and then allocates
+// from memory, so several BankJdbc instances can share a database without colliding.
+// Numbers left in a block when a node stops are simply skipped.
+//
+// With a stride the sequence counts slots rather than numbers: slot k becomes k * stride + offset.
+// Shard i of n uses stride n and offset i, so an account number alone tells which shard holds it.
+public class AccountNumberAllocator {
+    static final String SEQUENCE_NAME = "account";
+    static final int FIRST_ACCOUNT_NUMBER = 1001;
+
+    private final ConnectionPool pool;
+    private final int blockSize;
+    private final int stride;
+    private final int offset;
+
+    private int next = 0;  // guarded by this
+    private int limit = 0; // exclusive end of the current block
+    private int reservations = 0;
+    private SchemaManager.Dialect dialect; // detected on the first reservation
+
+    public AccountNumberAllocator(ConnectionPool pool, int blockSize) {
+        this(pool, blockSize, 1, 0);
+    }
+
+    public AccountNumberAllocator(ConnectionPool pool, int blockSize, int stride, int offset) {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive.");
+        if (stride <= 0 || offset < 0 || offset >= stride) throw new IllegalArgumentException("Need 0 <= offset < stride.");
+        this.pool = pool;
+        this.blockSize = blockSize;
+        this.stride = stride;
+        this.offset = offset;
+    }
+
+    public synchronized int next() throws SQLException {
+        if (next >= limit) {
+            int end = reserve();
+            next = end - blockSize;
+            limit = end;
+        }
+        return next++ * stride + offset;
+    }
+
+    // Moves the shared sequence forward by one block and returns the block's exclusive end.
+    // Creates and seeds account_sequence if the table or its row doesn't exist yet.
+    private int reserve() throws SQLException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try (Connection con = pool.getConnection()) {
+                if (dialect == null) dialect = SchemaManager.Dialect.of(con.getMetaData());
+                OptionalInt end;
+                try {
+                    end = advance(con);
+                } catch (SQLException e) {
+                    if (attempt > 0 || !isMissingTable(e)) throw e;
+                    if (!con.getAutoCommit()) con.rollback();
+                    end = OptionalInt.empty();
+                }
+                if (end.isPresent()) {
+                    reservations++;
+                    return end.getAsInt();
+                }
+                seed(con);
+            }
+        }
+        throw new SQLException("account_sequence row '" + SEQUENCE_NAME + "' could not be created");
+    }
+
+    // Adds blockSize to the sequence and reads the new value back, in a single statement (one round trip,
+    // autocommitted) where the database allows it. Empty if the row doesn't exist.
+    private OptionalInt advance(Connection con) throws SQLException {
+        switch (dialect) {
+            case MYSQL:
+                // LAST_INSERT_ID(expr) returns the new value in the UPDATE's OK packet, read as the generated key
+                return advance(con, "UPDATE account_sequence SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?", true);
+            case POSTGRESQL:
+                return advance(con, "UPDATE account_sequence SET next_value = next_value + ? WHERE name = ? RETURNING next_value", false);
+            case H2:
+                return advance(con, "SELECT next_value FROM FINAL TABLE ("
+                        + "UPDATE account_sequence SET next_value = next_value + ? WHERE name = ?)", false);
+            default:
+                return advanceAndSelect(con);
+        }
+    }
+
+    private OptionalInt advance(Connection con, String sql, boolean generatedKey) throws SQLException {
+        try (PreparedStatement pst = generatedKey ? con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                                                  : con.prepareStatement(sql)) {
+            pst.setInt(1, blockSize);
+            pst.setString(2, SEQUENCE_NAME);
+            if (generatedKey) {
+                if (pst.executeUpdate() == 0) return OptionalInt.empty();
+                try (ResultSet rs = pst.getGeneratedKeys()) {
+                    rs.next();
+                    return OptionalInt.of(rs.getInt(1));
+                }
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? OptionalInt.of(rs.getInt(1)) : OptionalInt.empty();
+            }
+        }
+    }
+
+    // Other databases: UPDATE, then SELECT in the same transaction (three round trips with the commit).
+    private OptionalInt advanceAndSelect(Connection con) throws SQLException {
+        String upd = "UPDATE account_sequence SET next_value = next_value + ? WHERE name = ?";
+        String sel = "SELECT next_value FROM account_sequence WHERE name = ?";
+        try (PreparedStatement pup = con.prepareStatement(upd);
+             PreparedStatement psel = con.prepareStatement(sel)) {
+
+            con.setAutoCommit(false);
+            pup.setInt(1, blockSize);
+            pup.setString(2, SEQUENCE_NAME);
+            if (pup.executeUpdate() == 0) {
+                con.rollback();
+                return OptionalInt.empty();
+            }
+            // row is locked by our UPDATE, so this reads our own increment
+            psel.setString(1, SEQUENCE_NAME);
+            try (ResultSet rs = psel.executeQuery()) {
+                rs.next();
+                int end = rs.getInt(1);
+                con.commit();
+                return OptionalInt.of(end);
+            }
+        }
+    }
+
+    // Table not found (SQLState 42S02 and relatives on MySQL and H2, 42P01 on PostgreSQL).
+    private static boolean isMissingTable(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("42S0") || "42P01".equals(state));
+    }
+
+    // First use against an existing database: start after the highest account number already taken.
+    private void seed(Connection con) throws SQLException {
+        con.setAutoCommit(true);
+        int first = FIRST_ACCOUNT_NUMBER;
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS account_sequence ("
+                    + "name VARCHAR(32) NOT NULL PRIMARY KEY, next_value INT NOT NULL)");
+            try (ResultSet rs = st.executeQuery("SELECT MAX(account_number) FROM accounts")) {
+                if (rs.next()) {
+                    int max = rs.getInt(1);
+                    if (!rs.wasNull()) first = max + 1;
+                }
+            }
+        }
+        String ins = "INSERT INTO account_sequence(name, next_value) VALUES (?, ?)";
+        try (PreparedStatement pst = con.prepareStatement(ins)) {
+            pst.setString(1, SEQUENCE_NAME);
+            pst.setInt(2, (first - offset + stride - 1) / stride); // first slot whose number is >= first
+            pst.executeUpdate();
+        } catch (SQLException e) {
+            // another node seeded it first; the retry will find the row
+        }
+    }
+
+    public int getBlockSize() { return blockSize; }
+    public int getStride() { return stride; }
+    public int getOffset() { return offset; }
+    public synchronized int getReservations() { return reservations; }
+}
@@ -0,0 +1,40 @@
+package com.example.bankconsole;
+
+import java.time.LocalDateTime;
+
+// Opening and closing balance of one account over [from, to), with the period's totals.
+public final class AccountStatement {
+    private final int accountNumber;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final double openingBalance;
+    private final double credits;
+    private final double debits;
+    private final long transactionCount;
+
+    public AccountStatement(int accountNumber, LocalDateTime from, LocalDateTime to,
+                            double openingBalance, double credits, double debits, long transactionCount) {
+        this.accountNumber = accountNumber;
+        this.from = from;
+        this.to = to;
+        this.openingBalance = openingBalance;
+        this.credits = credits;
+        this.debits = debits;
+        this.transactionCount = transactionCount;
+    }
+
+    public int getAccountNumber() { return accountNumber; }
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public double getOpeningBalance() { return openingBalance; }
+    public double getClosingBalance() { return openingBalance + credits - debits; }
+    public double getCredits() { return credits; }
+    public double getDebits() { return debits; }
+    public long getTransactionCount() { return transactionCount; }
+
+    @Override
+    public String toString() {
+        return String.format("Statement %d %s .. %s | opening Rs.%.2f | credits Rs.%.2f | debits Rs.%.2f | closing Rs.%.2f | %d transactions",
+                accountNumber, from, to, openingBalance, credits, debits, getClosingBalance(), transactionCount);
+    }
+}
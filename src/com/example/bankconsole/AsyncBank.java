@@ -0,0 +1,140 @@
+package com.example.bankconsole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Asynchronous front end over BankJdbc: every operation returns a CompletableFuture.
+//
+// At most maxConcurrency operations are in flight (normally the connection pool size). When that
+// limit is reached, callers get a future failed with RejectedExecutionException (backpressure instead
+// of an unbounded queue). With acquireTimeoutMillis = 0 that happens at once and calls never block;
+// with a positive value the calling thread blocks up to that long waiting for a slot first.
+// Futures that don't complete within operationTimeoutMillis fail with TimeoutException.
+//
+// Each operation runs on its own virtual thread, so thousands of pending callers cost no platform
+// threads; the semaphore, not the executor, bounds how many reach the connection pool.
+public class AsyncBank implements AutoCloseable {
+    private final BankJdbc bank;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMillis;
+    private final long operationTimeoutMillis;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public AsyncBank(BankJdbc bank) {
+        this(bank, bank.getPool().getMaxSize(), 0, 10_000);
+    }
+
+    public AsyncBank(BankJdbc bank, int maxConcurrency, long acquireTimeoutMillis, long operationTimeoutMillis) {
+        if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency must be positive.");
+        this.bank = bank;
+        this.maxConcurrency = maxConcurrency;
+        this.inFlight = new Semaphore(maxConcurrency);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.operationTimeoutMillis = operationTimeoutMillis;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bank-async-", 1).factory());
+    }
+
+    public CompletableFuture<Account> createAccount(String holderName, int pin, double initialDeposit) {
+        return submit(() -> bank.createAccount(holderName, pin, initialDeposit));
+    }
+
+    public CompletableFuture<Optional<Account>> findAccount(int accNo) {
+        return submit(() -> bank.findAccount(accNo));
+    }
+
+    public CompletableFuture<Boolean> authenticate(int accNo, int pin) {
+        return submit(() -> bank.authenticate(accNo, pin));
+    }
+
+    public CompletableFuture<Boolean> deposit(int accNo, double amount) {
+        return submit(() -> bank.deposit(accNo, amount));
+    }
+
+    public CompletableFuture<Boolean> withdraw(int accNo, double amount) {
+        return submit(() -> bank.withdraw(accNo, amount));
+    }
+
+    public CompletableFuture<Boolean> transfer(int fromAcc, int toAcc, double amount) {
+        return submit(() -> bank.transfer(fromAcc, toAcc, amount));
+    }
+
+    public CompletableFuture<TransactionPage> getTransactionsPage(int accNo, HistoryCursor after, int pageSize) {
+        return submit(() -> bank.getTransactionsPage(accNo, after, pageSize));
+    }
+
+    public CompletableFuture<List<Account>> listAccounts() {
+        return submit(bank::listAccounts);
+    }
+
+    public CompletableFuture<BatchResult> executeBatch(List<BatchOperation> ops, int batchSize) {
+        return submit(() -> bank.executeBatch(ops, batchSize));
+    }
+
+    // Runs any call against the bank under the same concurrency limit and timeout (BankServer uses it for sessions).
+    <T> CompletableFuture<T> submit(Supplier<T> call) {
+        try {
+            boolean acquired = acquireTimeoutMillis <= 0
+                    ? inFlight.tryAcquire()
+                    : inFlight.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                rejected.incrementAndGet();
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Bank is saturated (" + maxConcurrency + " operations in flight)"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> future;
+        try {
+            // the permit is released when the JDBC call really finishes, not when the caller times out,
+            // so a timed-out operation still counts against the connection budget until it is done
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.get();
+                } finally {
+                    inFlight.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (operationTimeoutMillis <= 0) return future;
+        return future.orTimeout(operationTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((r, ex) -> {
+                    if (ex instanceof TimeoutException) timedOut.incrementAndGet();
+                });
+    }
+
+    public BankJdbc getBank() { return bank; }
+    public int getMaxConcurrency() { return maxConcurrency; }
+    public int getInFlight() { return maxConcurrency - inFlight.availablePermits(); }
+    public long getRejectedCount() { return rejected.get(); }
+    public long getTimedOutCount() { return timedOut.get(); }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(operationTimeoutMillis > 0 ? operationTimeoutMillis : 10_000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.bankconsole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.function.LongSupplier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Balance checkpoints: the balance of every account at the start of a day (or month), stored in
+// balance_checkpoints. A balance at time T is then the latest checkpoint at or before T plus the
+// ledger rows between the checkpoint and T, instead of a scan of the account's whole history.
+//
+// A checkpoint for a boundary is computed from the previous checkpoint plus the ledger rows in
+// between, so it only has to be built once the boundary is safely in the past: a write stamped just
+// before the boundary may still be in flight (see GRACE_SECONDS). A LedgerEngine stamps its rows when it
+// applies them, which can be long before they are persisted; it holds checkpoints back (see holdBack)
+// until every row stamped before the boundary is in the database. Months moved out of transactions by
+// SchemaManager.archiveMonth must be checkpointed before they are archived.
+public class BalanceCheckpoints {
+
+    public enum Period { DAY, MONTH }
+
+    // how long after a boundary before it is checkpointed (override with -Dbank.checkpoint.graceSeconds)
+    static final long GRACE_SECONDS = Long.getLong("bank.checkpoint.graceSeconds", 300);
+
+    // signed effect of a ledger row on the balance
+    static final String SIGNED_AMOUNT = "CASE WHEN t.type IN ('WITHDRAW', 'TRANSFER_OUT') THEN -t.amount ELSE t.amount END";
+
+    private final ConnectionPool pool;
+    private final Period period;
+    private ScheduledExecutorService job;
+    // epoch millis before which every ledger row is in the database; Long.MAX_VALUE when nothing is outstanding
+    private volatile LongSupplier persistedBefore = () -> Long.MAX_VALUE;
+
+    public BalanceCheckpoints(ConnectionPool pool, Period period) {
+        this.pool = pool;
+        this.period = period;
+    }
+
+    public Period getPeriod() { return period; }
+
+    // Registers a writer whose ledger rows reach the database after they are stamped (LedgerEngine):
+    // boundaries at or after persistedBefore aren't checkpointed until it moves past them.
+    public void holdBack(LongSupplier persistedBefore) {
+        this.persistedBefore = persistedBefore;
+    }
+
+    // Latest boundary that can be checkpointed now.
+    private LocalDateTime cutoff() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(GRACE_SECONDS);
+        long persisted = persistedBefore.getAsLong();
+        if (persisted != Long.MAX_VALUE) {
+            LocalDateTime p = new Timestamp(persisted).toLocalDateTime();
+            if (p.isBefore(cutoff)) cutoff = p;
+        }
+        return cutoff;
+    }
+
+    // Writes the checkpoint at the start of the given day for every account that doesn't have one yet.
+    // Returns the number of checkpoints written.
+    public int checkpoint(LocalDate day) throws SQLException {
+        LocalDateTime asOf = day.atStartOfDay();
+        if (asOf.isAfter(cutoff())) {
+            throw new IllegalArgumentException("Checkpoint " + asOf + " is too recent; writes before it may still be in flight "
+                    + "or not yet persisted.");
+        }
+        // previous checkpoint (if any) + ledger rows from it up to asOf, for all accounts in one statement
+        String ins = "INSERT INTO balance_checkpoints(account_number, as_of, balance) "
+                   + "SELECT a.account_number, ?, COALESCE(p.balance, 0) + COALESCE(("
+                   + "  SELECT SUM(" + SIGNED_AMOUNT + ") FROM transactions t WHERE t.account_number = a.account_number "
+                   + "  AND t.ts < ? AND (p.as_of IS NULL OR t.ts >= p.as_of)), 0) "
+                   + "FROM accounts a LEFT JOIN balance_checkpoints p ON p.account_number = a.account_number "
+                   + "  AND p.as_of = (SELECT MAX(c.as_of) FROM balance_checkpoints c "
+                   + "                 WHERE c.account_number = a.account_number AND c.as_of < ?) "
+                   + "WHERE NOT EXISTS (SELECT 1 FROM balance_checkpoints x "
+                   + "                  WHERE x.account_number = a.account_number AND x.as_of = ?)";
+        Timestamp ts = Timestamp.valueOf(asOf);
+        try (Connection con = pool.getConnection();
+             PreparedStatement pst = con.prepareStatement(ins)) {
+            for (int i = 1; i <= 4; i++) pst.setTimestamp(i, ts);
+            return pst.executeUpdate();
+        }
+    }
+
+    // Writes checkpoints for every boundary after the latest one up to the last boundary that is old enough
+    // and, with a LedgerEngine attached, persisted.
+    // The first run starts at the boundary that precedes the oldest ledger row. Returns the checkpoints written.
+    public int catchUp() throws SQLException {
+        LocalDate last;
+        LocalDate first;
+        try (Connection con = pool.getConnection(); Statement st = con.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT MAX(as_of) FROM balance_checkpoints")) {
+                rs.next();
+                Timestamp t = rs.getTimestamp(1);
+                last = t == null ? null : t.toLocalDateTime().toLocalDate();
+            }
+            try (ResultSet rs = st.executeQuery("SELECT MIN(ts) FROM transactions")) {
+                rs.next();
+                Timestamp t = rs.getTimestamp(1);
+                if (last == null && t == null) return 0; // empty ledger
+                first = last != null ? next(last) : boundaryOnOrBefore(t.toLocalDateTime().toLocalDate());
+            }
+        }
+        LocalDateTime cutoff = cutoff();
+        int written = 0;
+        for (LocalDate d = first; !d.atStartOfDay().isAfter(cutoff); d = next(d)) {
+            written += checkpoint(d);
+        }
+        return written;
+    }
+
+    private LocalDate boundaryOnOrBefore(LocalDate d) {
+        return period == Period.MONTH ? d.withDayOfMonth(1) : d;
+    }
+
+    private LocalDate next(LocalDate d) {
+        return period == Period.MONTH ? d.withDayOfMonth(1).plusMonths(1) : d.plusDays(1);
+    }
+
+    // Runs catchUp every periodMinutes on a daemon thread.
+    public synchronized void startJob(long periodMinutes) {
+        if (job != null || periodMinutes <= 0) return;
+        job = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-balance-checkpoints");
+            t.setDaemon(true);
+            return t;
+        });
+        job.scheduleWithFixedDelay(() -> {
+            try {
+                int n = catchUp();
+                if (n > 0) System.out.println("Wrote " + n + " balance checkpoints.");
+            } catch (SQLException e) {
+                System.out.println("Balance checkpoint failed: " + e.getMessage());
+            }
+        }, 0, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stopJob() {
+        if (job != null) {
+            job.shutdownNow();
+            job = null;
+        }
+    }
+
+    // ------------------ Queries ------------------ //
+
+    // Balance after every ledger row stamped before 'at'; empty if the account doesn't exist.
+    public OptionalDouble balanceAsOf(int accNo, LocalDateTime at) throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            return balanceAsOf(con, accNo, at);
+        }
+    }
+
+    private static OptionalDouble balanceAsOf(Connection con, int accNo, LocalDateTime at) throws SQLException {
+        String qcp = "SELECT as_of, balance FROM balance_checkpoints WHERE account_number = ? AND as_of <= ? "
+                   + "ORDER BY as_of DESC LIMIT 1";
+        Timestamp from = null;
+        double balance = 0;
+        try (PreparedStatement pst = con.prepareStatement(qcp)) {
+            pst.setInt(1, accNo);
+            pst.setTimestamp(2, Timestamp.valueOf(at));
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    from = rs.getTimestamp(1);
+                    balance = rs.getDouble(2);
+                }
+            }
+        }
+        // short tail: only the rows since the checkpoint (the whole history if there is none yet)
+        String qtail = "SELECT SUM(" + SIGNED_AMOUNT + "), COUNT(*) FROM transactions t "
+                     + "WHERE t.account_number = ? AND t.ts >= ? AND t.ts < ?";
+        try (PreparedStatement pst = con.prepareStatement(qtail)) {
+            pst.setInt(1, accNo);
+            pst.setTimestamp(2, from != null ? from : new Timestamp(0));
+            pst.setTimestamp(3, Timestamp.valueOf(at));
+            try (ResultSet rs = pst.executeQuery()) {
+                rs.next();
+                balance += rs.getDouble(1);
+                if (from == null && rs.getLong(2) == 0 && !exists(con, accNo)) return OptionalDouble.empty();
+            }
+        }
+        return OptionalDouble.of(balance);
+    }
+
+    private static boolean exists(Connection con, int accNo) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement("SELECT 1 FROM accounts WHERE account_number = ?")) {
+            pst.setInt(1, accNo);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // Opening balance at 'from' plus the credits and debits of [from, to); null if the account doesn't exist.
+    public AccountStatement statement(int accNo, LocalDateTime from, LocalDateTime to) throws SQLException {
+        if (!to.isAfter(from)) throw new IllegalArgumentException("Statement period is empty.");
+        String q = "SELECT SUM(CASE WHEN t.type IN ('WITHDRAW', 'TRANSFER_OUT') THEN 0 ELSE t.amount END), "
+                 + "SUM(CASE WHEN t.type IN ('WITHDRAW', 'TRANSFER_OUT') THEN t.amount ELSE 0 END), COUNT(*) "
+                 + "FROM transactions t WHERE t.account_number = ? AND t.ts >= ? AND t.ts < ?";
+        try (Connection con = pool.getConnection()) {
+            OptionalDouble opening = balanceAsOf(con, accNo, from);
+            if (!opening.isPresent()) return null;
+            try (PreparedStatement pst = con.prepareStatement(q)) {
+                pst.setInt(1, accNo);
+                pst.setTimestamp(2, Timestamp.valueOf(from));
+                pst.setTimestamp(3, Timestamp.valueOf(to));
+                try (ResultSet rs = pst.executeQuery()) {
+                    rs.next();
+                    return new AccountStatement(accNo, from, to, opening.getAsDouble(),
+                            rs.getDouble(1), rs.getDouble(2), rs.getLong(3));
+                }
+            }
+        }
+    }
+
+    // ------------------ Verification ------------------ //
+
+    // Recomputes every checkpoint from the raw ledger (all rows before it) and returns a description of each
+    // one that disagrees; an empty list means all checkpoints are consistent. Reads the whole ledger once per
+    // checkpoint, so this is an offline check.
+    public List<String> verify() throws SQLException {
+        String q = "SELECT c.account_number, c.as_of, c.balance, COALESCE(("
+                 + "  SELECT SUM(" + SIGNED_AMOUNT + ") FROM transactions t "
+                 + "  WHERE t.account_number = c.account_number AND t.ts < c.as_of), 0) "
+                 + "FROM balance_checkpoints c ORDER BY c.account_number, c.as_of";
+        List<String> mismatches = new ArrayList<>();
+        try (Connection con = pool.getConnection();
+             PreparedStatement pst = con.prepareStatement(q, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pst.setFetchSize(BankJdbc.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    double stored = rs.getDouble(3);
+                    double ledger = rs.getDouble(4);
+                    if (Math.abs(stored - ledger) >= 0.005) {
+                        mismatches.add(String.format("account %d at %s: checkpoint Rs.%.2f, ledger Rs.%.2f",
+                                rs.getInt(1), rs.getTimestamp(2), stored, ledger));
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+}
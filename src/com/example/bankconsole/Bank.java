@@ -1,26 +1,52 @@
 package com.example.bankconsole;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
-public class Bank {
-    private final List<Account> accounts = new ArrayList<>();
+public class Bank implements BankOperations {
+    // fsync the journal after this many records (1 = every operation, 0 = leave it to the OS)
+    static final int DEFAULT_SYNC_EVERY = Integer.getInteger("bank.journal.syncEvery", 1);
+    // write a fresh snapshot and empty the journal after this many operations
+    static final int DEFAULT_SNAPSHOT_EVERY = Integer.getInteger("bank.journal.snapshotEvery", 10_000);
+
+    private final List<Account> accounts = new ArrayList<>(); // creation order, for listAccounts and snapshots
+    private final AccountIndex index = new AccountIndex();    // account number -> account, for lookups
     private int nextAccountNumber = 1001;
     private final File storageFile;
-    
+    private final BankJournal journal;
+    private final int snapshotEvery;
+    private long lastSeq = 0;         // sequence number of the last applied operation
+    private long snapshotSeq = 0;     // last operation included in the snapshot on disk
+    private IOException journalFailure; // set by a failed append: no further changes until restart
 
-    
     public Bank(String storagePath) {
+        this(storagePath, DEFAULT_SYNC_EVERY, DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    // Persistence is a snapshot (storagePath, same format as before) plus an append-only
+    // journal (storagePath + ".wal") of the operations since that snapshot.
+    public Bank(String storagePath, int syncEvery, int snapshotEvery) {
         this.storageFile = new File(storagePath);
+        this.snapshotEvery = snapshotEvery;
 
         // Create data folder if needed
-        if (!this.storageFile.getParentFile().exists()) {
-            this.storageFile.getParentFile().mkdirs();
+        if (!this.storageFile.getAbsoluteFile().getParentFile().exists()) {
+            this.storageFile.getAbsoluteFile().getParentFile().mkdirs();
         }
 
         load();
+        try {
+            this.journal = new BankJournal(new File(storagePath + ".wal"), syncEvery);
+            int replayed = journal.replay(this::replay);
+            if (replayed > 0) System.out.println("Recovered " + replayed + " operations from the journal.");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal for " + storagePath, e);
+        }
 
         // Ensure correct next account number
         for (Account a : accounts) {
@@ -30,20 +56,26 @@ public class Bank {
         }
     }
 
+    // Every change is appended to the journal first and only applied once the append has succeeded,
+    // so an operation reported as done is in the journal, and a failed one changes nothing in memory.
     public synchronized Account createAccount(String holderName, int pin, double initialDeposit) {
-        Account a = new Account(nextAccountNumber++, holderName, pin, initialDeposit);
+        if (!BankJournal.fitsName(holderName)) {
+            System.out.println("Create account failed: holder name too long.");
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        int accNo = nextAccountNumber;
+        if (!log(seq -> journal.appendCreate(seq, now, accNo, initialDeposit, pin, holderName))) return null;
+        nextAccountNumber++;
+        Account a = new Account(accNo, holderName, pin, initialDeposit, now);
         accounts.add(a);
-        save();
+        index.put(a);
+        afterWrite();
         return a;
     }
 
-    public Optional<Account> findAccount(int accNo) {
-        for (Account a : accounts) {
-            if (a.getAccountNumber() == accNo) {
-                return Optional.of(a);
-            }
-        }
-        return Optional.empty();
+    public synchronized Optional<Account> findAccount(int accNo) {
+        return Optional.ofNullable(index.get(accNo));
     }
 
     public synchronized boolean deposit(int accNo, double amount) {
@@ -51,8 +83,11 @@ public class Bank {
         if (!opt.isPresent()) return false;
 
         Account a = opt.get();
-        a.deposit(amount);
-        save();
+        if (amount <= 0) throw new IllegalArgumentException("Amount must be positive.");
+        long now = System.currentTimeMillis();
+        if (!log(seq -> journal.append(BankJournal.DEPOSIT, seq, now, accNo, 0, amount))) return false;
+        a.deposit(amount, now);
+        afterWrite();
         return true;
     }
 
@@ -61,9 +96,13 @@ public class Bank {
         if (!opt.isPresent()) return false;
 
         Account a = opt.get();
-        boolean ok = a.withdraw(amount);
-        if (ok) save();
-        return ok;
+        if (amount <= 0) throw new IllegalArgumentException("Amount must be positive.");
+        if (amount > a.getBalance()) return false;
+        long now = System.currentTimeMillis();
+        if (!log(seq -> journal.append(BankJournal.WITHDRAW, seq, now, accNo, 0, amount))) return false;
+        a.withdraw(amount, now);
+        afterWrite();
+        return true;
     }
 
     public synchronized boolean transfer(int fromAcc, int toAcc, double amount) {
@@ -75,19 +114,88 @@ public class Bank {
         Account src = srcOpt.get();
         Account dst = dstOpt.get();
 
-        if (!src.transferOut(amount)) return false;
-
-        dst.transferIn(amount);
-        save();
+        if (amount <= 0) throw new IllegalArgumentException("Amount must be positive.");
+        if (amount > src.getBalance()) return false;
+        long now = System.currentTimeMillis();
+        if (!log(seq -> journal.append(BankJournal.TRANSFER, seq, now, fromAcc, toAcc, amount))) return false;
+        src.transferOut(amount, now);
+        dst.transferIn(amount, now);
+        afterWrite();
         return true;
     }
 
-    public List<Account> listAccounts() {
+    public synchronized List<Account> listAccounts() {
         return new ArrayList<>(accounts);
     }
 
+    // Visits every account without copying the list. Runs under the bank's lock, so keep the action short.
+    public synchronized void forEachAccount(Consumer<Account> action) {
+        for (Account a : accounts) {
+            action.accept(a);
+        }
+    }
+
     // ------------------ Persistence ------------------ //
 
+    private interface JournalWrite {
+        void append(long seq) throws IOException;
+    }
+
+    // Appends the record of the next operation; true once it is in the journal. A failed append may have
+    // left part of a record, or one its fsync didn't confirm, at the end of the journal, so after a failure
+    // the bank takes no further changes: a restart replays whatever the journal turns out to hold.
+    private boolean log(JournalWrite write) {
+        if (journalFailure != null) {
+            System.out.println("Error saving accounts: the journal failed earlier (" + journalFailure.getMessage()
+                    + "); restart to make changes again.");
+            return false;
+        }
+        try {
+            write.append(lastSeq + 1);
+            lastSeq++;
+            return true;
+        } catch (IOException e) {
+            journalFailure = e;
+            System.out.println("Error saving accounts: " + e.getMessage() + ". The operation was not applied "
+                    + "(it may reappear after a restart if the journal kept it); no further changes until restart.");
+            return false;
+        }
+    }
+
+    private void afterWrite() {
+        if (snapshotEvery > 0 && lastSeq - snapshotSeq >= snapshotEvery) {
+            snapshot();
+        }
+    }
+
+    // Re-applies one journal record on startup. Records already covered by the snapshot are skipped.
+    private void replay(byte op, long seq, long at, int account, int toAccount, double amount, int pin, String name) {
+        if (seq <= lastSeq) return;
+        lastSeq = seq;
+        Optional<Account> acc = op == BankJournal.CREATE ? Optional.empty() : findAccount(account);
+        switch (op) {
+            case BankJournal.CREATE:
+                Account created = new Account(account, name, pin, amount, at);
+                accounts.add(created);
+                index.put(created);
+                break;
+            case BankJournal.DEPOSIT:
+                acc.ifPresent(a -> a.deposit(amount, at));
+                break;
+            case BankJournal.WITHDRAW:
+                acc.ifPresent(a -> a.withdraw(amount, at));
+                break;
+            case BankJournal.TRANSFER:
+                Optional<Account> dst = findAccount(toAccount);
+                if (acc.isPresent() && dst.isPresent() && acc.get().transferOut(amount, at)) {
+                    dst.get().transferIn(amount, at);
+                }
+                break;
+            default:
+                System.out.println("Warning: unknown journal record type " + op);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private void load() {
         if (!storageFile.exists()) return;
@@ -97,17 +205,49 @@ public class Bank {
             if (obj instanceof ArrayList) {
                 accounts.clear();
                 accounts.addAll((ArrayList<Account>) obj);
+                index.clear();
+                for (Account a : accounts) index.put(a);
             }
+            try {
+                lastSeq = ois.readLong();
+            } catch (EOFException e) {
+                lastSeq = 0; // file written before the journal existed
+            }
+            snapshotSeq = lastSeq;
         } catch (Exception e) {
             System.out.println("Warning: could not load existing accounts. Starting fresh.");
         }
     }
 
-    private void save() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(storageFile))) {
-            oos.writeObject(new ArrayList<>(accounts));
+    // Writes the full state to a temp file, atomically replaces the old snapshot, then empties the journal.
+    // A crash at any point leaves either the old snapshot plus the journal, or the new snapshot,
+    // whose sequence number makes replay skip the journal records it already contains.
+    public synchronized void snapshot() {
+        File tmp = new File(storageFile.getPath() + ".tmp");
+        try {
+            journal.sync();
+            try (FileOutputStream fos = new FileOutputStream(tmp);
+                 ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos))) {
+                oos.writeObject(new ArrayList<>(accounts));
+                oos.writeLong(lastSeq);
+                oos.flush();
+                fos.getFD().sync();
+            }
+            Files.move(tmp.toPath(), storageFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotSeq = lastSeq;
+            journal.reset();
         } catch (IOException e) {
             System.out.println("Error saving accounts: " + e.getMessage());
         }
     }
+
+    // Flushes the journal and closes it. The next start replays it on top of the last snapshot.
+    public synchronized void close() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error closing journal: " + e.getMessage());
+        }
+    }
 }
@@ -1,68 +1,216 @@
 package com.example.bankconsole;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-public class BankJdbc {
-    private int nextAccountNumber = 1001;
+public class BankJdbc implements BankOperations {
+    private final ConnectionPool pool;
+    private final ConcurrencyMode mode;
+    private final AccountLocks locks;
+    private final AccountNumberAllocator accountNumbers;
+    private final RoundTripStats roundTrips = new RoundTripStats();
+    private final BankMetrics metrics = new BankMetrics();
+    private volatile AccountCache accountCache; // optional, see setAccountCache
+    private volatile ReplicaSet replicas;       // optional, see setReplicas
+    private final BalanceCheckpoints checkpoints;
+    private final Map<Integer, Integer> hotSlots = new ConcurrentHashMap<>(); // hot account -> slot count, see setHotAccount
+    private ScheduledExecutorService hotJob;
+
+    // rows per network fetch when streaming (override with -Dbank.fetchSize)
+    static final int DEFAULT_FETCH_SIZE = Integer.getInteger("bank.fetchSize", 500);
+    // operations per database transaction in executeBatch (override with -Dbank.batchSize)
+    static final int DEFAULT_BATCH_SIZE = Integer.getInteger("bank.batchSize", 500);
+    // account numbers reserved per trip to account_sequence (override with -Dbank.accountBlockSize)
+    static final int ACCOUNT_BLOCK_SIZE = Integer.getInteger("bank.accountBlockSize", 50);
+    // period of the hot-account consolidation job (override with -Dbank.hot.consolidateMs; 0 = no hot accounts)
+    static final long HOT_CONSOLIDATE_MS = Long.getLong("bank.hot.consolidateMs", 1000);
+    // granularity of balance checkpoints, DAY or MONTH (override with -Dbank.checkpoint.period)
+    static final BalanceCheckpoints.Period CHECKPOINT_PERIOD =
+            BalanceCheckpoints.Period.valueOf(System.getProperty("bank.checkpoint.period", "DAY").toUpperCase());
+    // create/upgrade the schema when an instance is constructed (disable with -Dbank.schema.migrate=false)
+    static final boolean MIGRATE_SCHEMA = Boolean.parseBoolean(System.getProperty("bank.schema.migrate", "true"));
+
+    // an account's balance including its hot-account slots (see setHotAccount); for SELECTs FROM accounts
+    private static final String FOLDED_BALANCE =
+            "balance + COALESCE((SELECT SUM(s.balance) FROM account_slots s WHERE s.account_number = accounts.account_number), 0)";
+
+    // ledger row whose balance_after is read from the account row in the same statement
+    private static final String INSERT_TX_FROM_BALANCE =
+            "INSERT INTO transactions(account_number, type, amount, balance_after, ts) "
+          + "SELECT account_number, ?, ?, balance, ? FROM accounts WHERE account_number = ?";
+    // the same for a hot account, whose ledger rows carry no balance_after (see setHotAccount)
+    private static final String INSERT_TX_WITHOUT_BALANCE =
+            "INSERT INTO transactions(account_number, type, amount, balance_after, ts) "
+          + "SELECT account_number, ?, ?, NULL, ? FROM accounts WHERE account_number = ?";
+
+    // daily_rollups upkeep: bump the (account, day, type) row, insert it when this is the day's first such write
+    private static final String UPDATE_ROLLUP =
+            "UPDATE daily_rollups SET tx_count = tx_count + ?, amount_sum = amount_sum + ? "
+          + "WHERE account_number = ? AND rollup_day = ? AND type = ?";
+    private static final String INSERT_ROLLUP =
+            "INSERT INTO daily_rollups(account_number, rollup_day, type, tx_count, amount_sum) VALUES (?, ?, ?, ?, ?)";
 
     public BankJdbc() {
-        // initialize nextAccountNumber using DB
-        try (Connection con = DBConnection.getConnection();
-             Statement st = con.createStatement();
-             ResultSet rs = st.executeQuery("SELECT MAX(account_number) FROM accounts")) {
-            if (rs.next()) {
-                int max = rs.getInt(1);
-                if (max > 0) nextAccountNumber = max + 1;
+        this(DBConnection.pool());
+    }
+
+    public BankJdbc(ConnectionPool pool) {
+        this(pool, ConcurrencyMode.STRIPED_LOCKS);
+    }
+
+    public BankJdbc(ConnectionPool pool, ConcurrencyMode mode) {
+        this(pool, mode, 1, 0);
+    }
+
+    // One shard of a ShardedBankJdbc: new account numbers are congruent to accountOffset modulo accountStride.
+    public BankJdbc(ConnectionPool pool, ConcurrencyMode mode, int accountStride, int accountOffset) {
+        this.pool = pool;
+        this.mode = mode;
+        // enough stripes that unrelated accounts rarely share one
+        this.locks = mode == ConcurrencyMode.STRIPED_LOCKS ? new AccountLocks(Math.max(64, pool.getMaxSize() * 8)) : null;
+        this.accountNumbers = new AccountNumberAllocator(pool, ACCOUNT_BLOCK_SIZE, accountStride, accountOffset);
+        this.metrics.setPool(pool);
+        this.checkpoints = new BalanceCheckpoints(pool, CHECKPOINT_PERIOD);
+        if (MIGRATE_SCHEMA) {
+            try {
+                new SchemaManager(pool).migrate();
+            } catch (SQLException e) {
+                System.out.println("Warning: schema migration failed: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.out.println("Warning: couldn't read next account number: " + e.getMessage());
         }
+        loadHotAccounts();
+    }
+
+    public ConnectionPool getPool() { return pool; }
+    public ConcurrencyMode getConcurrencyMode() { return mode; }
+    public RoundTripStats getRoundTripStats() { return roundTrips; }
+    public BankMetrics getMetrics() { return metrics; }
+    public BalanceCheckpoints getCheckpoints() { return checkpoints; }
+    AccountNumberAllocator getAccountNumbers() { return accountNumbers; }
+    public AccountCache getAccountCache() { return accountCache; }
+
+    // Enables (or with null disables) caching of account rows for findAccount and authenticate.
+    // Only writes made through this instance invalidate entries; keep the TTL short when other nodes write too.
+    public void setAccountCache(AccountCache accountCache) { this.accountCache = accountCache; }
+
+    public ReplicaSet getReplicas() { return replicas; }
+
+    // Enables (or with null disables) read/write splitting: findAccount, listings, history and rollup queries
+    // go to a replica within the set's staleness bound, everything else to the primary. Use a BankSession
+    // where a user must see their own writes.
+    public void setReplicas(ReplicaSet replicas) { this.replicas = replicas; }
+
+    public BankSession openSession() {
+        return new BankSession(this);
+    }
+
+    // Amounts of deposits, withdrawals and transfers: a negative one would move money the wrong way past the
+    // balance checks, and NaN or infinity would end up in the ledger.
+    static boolean isValidAmount(double amount) {
+        return amount > 0 && Double.isFinite(amount);
     }
 
     // Create account and insert opening transaction
-    public synchronized Account createAccount(String holderName, int pin, double initialDeposit) {
-        int accNo = nextAccountNumber++;
+    public Account createAccount(String holderName, int pin, double initialDeposit) {
+        if (!(initialDeposit >= 0) || Double.isInfinite(initialDeposit)) {
+            System.out.println("Create account failed: initial deposit must be zero or a positive number.");
+            return null;
+        }
         String insertAcc = "INSERT INTO accounts(account_number, holder_name, pin, balance) VALUES (?, ?, ?, ?)";
         String insertTx  = "INSERT INTO transactions(account_number, type, amount, balance_after, ts) VALUES (?, 'OPEN', ?, ?, ?)";
-        try (Connection con = DBConnection.getConnection();
+        long start = System.nanoTime();
+        int trips = 0;
+        int accNo;
+        try {
+            accNo = accountNumbers.next();
+        } catch (SQLException e) {
+            System.out.println("Create account failed: couldn't allocate account number: " + e.getMessage());
+            metrics.error(OpType.CREATE_ACCOUNT);
+            return null;
+        }
+        try (Connection con = connect(OpType.CREATE_ACCOUNT);
              PreparedStatement pac = con.prepareStatement(insertAcc);
              PreparedStatement ptx = con.prepareStatement(insertTx)) {
 
             con.setAutoCommit(false);
+            long exec = System.nanoTime();
 
             pac.setInt(1, accNo);
             pac.setString(2, holderName);
             pac.setInt(3, pin);
             pac.setDouble(4, initialDeposit);
+            trips++;
             pac.executeUpdate();
 
+            LocalDateTime now = LocalDateTime.now();
             ptx.setInt(1, accNo);
             ptx.setDouble(2, initialDeposit);
             ptx.setDouble(3, initialDeposit);
-            ptx.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            ptx.setTimestamp(4, Timestamp.valueOf(now));
+            trips++;
             ptx.executeUpdate();
+            trips += addToRollup(con, accNo, now.toLocalDate(), "OPEN", initialDeposit);
+            metrics.phase(OpType.CREATE_ACCOUNT, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
 
-            con.commit();
+            trips++;
+            commit(con, OpType.CREATE_ACCOUNT);
 
             Account a = new Account(accNo, holderName, pin, initialDeposit);
+            AccountCache cache = accountCache;
+            if (cache != null) cache.put(a);
             return a;
         } catch (SQLException e) {
             System.out.println("Create account failed: " + e.getMessage());
+            failed(OpType.CREATE_ACCOUNT);
             return null;
+        } finally {
+            roundTrips.record(OpType.CREATE_ACCOUNT, trips);
+            metrics.record(OpType.CREATE_ACCOUNT, start);
         }
     }
 
-    // Find account and load its transactions (returns Account object with its transaction list)
+    // Find account (account row only; history is loaded separately via getTransactions)
     public Optional<Account> findAccount(int accNo) {
-        String qAcc = "SELECT account_number, holder_name, pin, balance FROM accounts WHERE account_number = ?";
-        String qTx  = "SELECT type, amount, balance_after, ts FROM transactions WHERE account_number = ? ORDER BY ts ASC, id ASC";
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement pac = con.prepareStatement(qAcc);
-             PreparedStatement ptx = con.prepareStatement(qTx)) {
+        return findAccount(accNo, 0);
+    }
+
+    // notBefore: see readSource
+    Optional<Account> findAccount(int accNo, long notBefore) {
+        long start = System.nanoTime();
+        AccountCache cache = accountCache;
+        long version = 0;
+        if (cache != null) {
+            Account cached = cache.get(accNo);
+            if (cached != null) {
+                metrics.record(OpType.FIND_ACCOUNT, start);
+                return Optional.of(cached);
+            }
+            version = cache.version(accNo);
+        }
+        String qAcc = "SELECT account_number, holder_name, pin, " + FOLDED_BALANCE + " AS balance "
+                    + "FROM accounts WHERE account_number = ?";
+        ConnectionPool source = readSource(notBefore);
+        try (Connection con = connect(OpType.FIND_ACCOUNT, source);
+             PreparedStatement pac = con.prepareStatement(qAcc)) {
 
             pac.setInt(1, accNo);
             try (ResultSet rsa = pac.executeQuery()) {
@@ -71,207 +219,1418 @@ public class BankJdbc {
                 int pin = rsa.getInt("pin");
                 double balance = rsa.getDouble("balance");
                 Account acc = new Account(accNo, holder, pin, balance);
-
-                ptx.setInt(1, accNo);
-                try (ResultSet rst = ptx.executeQuery()) {
-                    while (rst.next()) {
-                        String type = rst.getString("type");
-                        double amount = rst.getDouble("amount");
-                        double balAfter = rst.getDouble("balance_after");
-                        String ts = rst.getTimestamp("ts").toString().substring(0, 19).replace('T',' ');
-                        // add Transaction into account's list via reflection? -> use public API in Account (we don't have addTx)
-                        // We will construct Transaction and add using deposit/withdraw/transfer methods won't record same tx.
-                        // To avoid duplicating logic, we will use a Transaction constructor (exists).
-                        acc.getTransactions().clear(); // but getTransactions returns new list; we can't modify it
-                        // Simpler approach: Use Account constructor already adds OPEN tx; to prevent double-count,
-                        // we'll add transactions by using reflection-like approach: use deposit/withdraw would create additional DB writes (not desired)
-                        // So instead we will not re-populate transactions inside Account object; we will show transactions from DB when requested.
-                    }
-                }
+                if (cache != null && source == pool) cache.putIfUnchanged(acc, version); // replica rows may be stale
                 return Optional.of(acc);
             }
         } catch (SQLException e) {
             System.out.println("Error reading account: " + e.getMessage());
+            metrics.error(OpType.FIND_ACCOUNT);
             return Optional.empty();
+        } finally {
+            roundTrips.record(OpType.FIND_ACCOUNT, 1);
+            metrics.record(OpType.FIND_ACCOUNT, start);
+        }
+    }
+
+    // Login check: reads only the PIN of the account
+    public boolean authenticate(int accNo, int pin) {
+        long start = System.nanoTime();
+        AccountCache cache = accountCache;
+        if (cache != null) {
+            Account cached = cache.get(accNo);
+            if (cached != null) {
+                metrics.record(OpType.AUTHENTICATE, start);
+                return cached.checkPin(pin);
+            }
+        }
+        String q = "SELECT pin FROM accounts WHERE account_number = ?";
+        try (Connection con = connect(OpType.AUTHENTICATE);
+             PreparedStatement pst = con.prepareStatement(q)) {
+
+            pst.setInt(1, accNo);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() && rs.getInt(1) == pin;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error checking PIN: " + e.getMessage());
+            metrics.error(OpType.AUTHENTICATE);
+            return false;
+        } finally {
+            roundTrips.record(OpType.AUTHENTICATE, 1);
+            metrics.record(OpType.AUTHENTICATE, start);
         }
     }
 
     // Deposit -> update accounts and insert transaction
-    public synchronized boolean deposit(int accNo, double amount) {
+    public boolean deposit(int accNo, double amount) {
+        if (!isValidAmount(amount)) {
+            System.out.println("Deposit failed: amount must be a positive number.");
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            return withRetries(OpType.DEPOSIT, () -> {
+                Integer slots = hotSlots.get(accNo);
+                if (slots != null) {
+                    Boolean done = doSlotDeposit(accNo, slots, amount);
+                    if (done != null) return done;
+                }
+                return underLock(OpType.DEPOSIT, accNo, () -> doDeposit(accNo, amount));
+            });
+        } catch (SQLException e) {
+            System.out.println("Deposit failed: " + e.getMessage());
+            failed(OpType.DEPOSIT);
+            return false;
+        } finally {
+            metrics.record(OpType.DEPOSIT, start);
+        }
+    }
+
+    // Two statements: the UPDATE, then an INSERT ... SELECT that copies the new balance
+    // straight from the (already locked) account row into the ledger.
+    private boolean doDeposit(int accNo, double amount) throws SQLException {
         String upd = "UPDATE accounts SET balance = balance + ? WHERE account_number = ?";
-        String ins = "INSERT INTO transactions(account_number, type, amount, balance_after, ts) VALUES (?, 'DEPOSIT', ?, ?, ?)";
-        try (Connection con = DBConnection.getConnection();
+        int trips = 0;
+        try (Connection con = connect(OpType.DEPOSIT);
              PreparedStatement pup = con.prepareStatement(upd);
-             PreparedStatement pins = con.prepareStatement(ins)) {
+             PreparedStatement pins = con.prepareStatement(ledgerInsert(accNo))) {
 
             con.setAutoCommit(false);
+            long exec = System.nanoTime();
 
-            // update
             pup.setDouble(1, amount);
             pup.setInt(2, accNo);
-            int updated = pup.executeUpdate();
-            if (updated == 0) { con.rollback(); return false; }
+            trips++;
+            if (pup.executeUpdate() == 0) { trips++; rollback(con, OpType.DEPOSIT); return false; }
 
-            // compute new balance to store in tx
-            double newBalance;
-            try (PreparedStatement pst = con.prepareStatement("SELECT balance FROM accounts WHERE account_number = ?")) {
-                pst.setInt(1, accNo);
-                try (ResultSet rs = pst.executeQuery()) {
-                    rs.next();
-                    newBalance = rs.getDouble(1);
-                }
-            }
-
-            pins.setInt(1, accNo);
-            pins.setDouble(2, amount);
-            pins.setDouble(3, newBalance);
-            pins.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            LocalDateTime now = LocalDateTime.now();
+            bindLedgerInsert(pins, "DEPOSIT", amount, accNo, now);
+            trips++;
             pins.executeUpdate();
+            trips += addToRollup(con, accNo, now.toLocalDate(), "DEPOSIT", amount);
+            metrics.phase(OpType.DEPOSIT, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
 
-            con.commit();
+            trips++;
+            commit(con, OpType.DEPOSIT);
+            evict(accNo);
+            return true;
+        } finally {
+            roundTrips.record(OpType.DEPOSIT, trips);
+        }
+    }
+
+    // Deposit to a hot account: no JVM lock and no accounts row lock, only one of its slot rows.
+    // Returns null, having written nothing, if that slot is gone (the account was reconfigured meanwhile).
+    private Boolean doSlotDeposit(int accNo, int slots, double amount) throws SQLException {
+        int trips = 0;
+        try (Connection con = connect(OpType.DEPOSIT)) {
+            con.setAutoCommit(false);
+            long exec = System.nanoTime();
+            LocalDateTime now = LocalDateTime.now();
+            trips++;
+            if (!creditSlot(con, accNo, slots, amount, now)) { trips++; con.rollback(); return null; }
+            trips += insertSlotLedgerRow(con, accNo, "DEPOSIT", amount, now);
+            metrics.phase(OpType.DEPOSIT, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
+
+            trips++;
+            commit(con, OpType.DEPOSIT);
+            evict(accNo);
             return true;
+        } finally {
+            roundTrips.record(OpType.DEPOSIT, trips);
+        }
+    }
+
+    // Withdraw -> ensure sufficient funds
+    public boolean withdraw(int accNo, double amount) {
+        if (!isValidAmount(amount)) {
+            System.out.println("Withdraw failed: amount must be a positive number.");
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            return withRetries(OpType.WITHDRAW, () -> underLock(OpType.WITHDRAW, accNo, () -> doWithdraw(accNo, amount)));
         } catch (SQLException e) {
-            System.out.println("Deposit failed: " + e.getMessage());
+            System.out.println("Withdraw failed: " + e.getMessage());
+            failed(OpType.WITHDRAW);
             return false;
+        } finally {
+            metrics.record(OpType.WITHDRAW, start);
         }
     }
 
-    // Withdraw -> ensure sufficient funds
-    public synchronized boolean withdraw(int accNo, double amount) {
+    private boolean doWithdraw(int accNo, double amount) throws SQLException {
         String upd = "UPDATE accounts SET balance = balance - ? WHERE account_number = ? AND balance >= ?";
-        String ins = "INSERT INTO transactions(account_number, type, amount, balance_after, ts) VALUES (?, 'WITHDRAW', ?, ?, ?)";
-        try (Connection con = DBConnection.getConnection();
+        int trips = 0;
+        try (Connection con = connect(OpType.WITHDRAW);
              PreparedStatement pup = con.prepareStatement(upd);
-             PreparedStatement pins = con.prepareStatement(ins)) {
+             PreparedStatement pins = con.prepareStatement(ledgerInsert(accNo))) {
 
             con.setAutoCommit(false);
+            long exec = System.nanoTime();
 
             pup.setDouble(1, amount);
             pup.setInt(2, accNo);
             pup.setDouble(3, amount);
-            int updated = pup.executeUpdate();
-            if (updated == 0) { con.rollback(); return false; }
-
-            double newBalance;
-            try (PreparedStatement pst = con.prepareStatement("SELECT balance FROM accounts WHERE account_number = ?")) {
-                pst.setInt(1, accNo);
-                try (ResultSet rs = pst.executeQuery()) {
-                    rs.next();
-                    newBalance = rs.getDouble(1);
-                }
-            }
+            trips++;
+            if (!tryDebit(con, accNo, pup)) { trips++; rollback(con, OpType.WITHDRAW); return false; }
 
-            pins.setInt(1, accNo);
-            pins.setDouble(2, amount);
-            pins.setDouble(3, newBalance);
-            pins.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            LocalDateTime now = LocalDateTime.now();
+            bindLedgerInsert(pins, "WITHDRAW", amount, accNo, now);
+            trips++;
             pins.executeUpdate();
+            trips += addToRollup(con, accNo, now.toLocalDate(), "WITHDRAW", amount);
+            metrics.phase(OpType.WITHDRAW, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
 
-            con.commit();
+            trips++;
+            commit(con, OpType.WITHDRAW);
+            evict(accNo);
             return true;
+        } finally {
+            roundTrips.record(OpType.WITHDRAW, trips);
+        }
+    }
+
+    // Transfer: transactional two-updates + two transaction rows.
+    // Rows are always locked in account-number order, so opposite transfers can only deadlock through
+    // something outside this class (another node's SQL, gap locks); such a deadlock is retried like any
+    // other lock conflict (see withRetries).
+    public boolean transfer(int fromAcc, int toAcc, double amount) {
+        if (fromAcc == toAcc) return false; // nothing to move; would also write a lone TRANSFER_OUT row
+        if (!isValidAmount(amount)) {
+            System.out.println("Transfer failed: amount must be a positive number.");
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            return withRetries(OpType.TRANSFER, () -> {
+                Integer slots = hotSlots.get(toAcc);
+                if (slots != null) {
+                    Boolean done = underLock(OpType.TRANSFER, fromAcc, () -> doSlotTransfer(fromAcc, toAcc, slots, amount));
+                    if (done != null) return done;
+                }
+                if (locks == null) return doTransfer(fromAcc, toAcc, amount);
+                long t = System.nanoTime();
+                locks.lockBoth(fromAcc, toAcc);
+                metrics.phase(OpType.TRANSFER, BankMetrics.Phase.LOCK_WAIT, System.nanoTime() - t);
+                try {
+                    return doTransfer(fromAcc, toAcc, amount);
+                } finally {
+                    locks.unlockBoth(fromAcc, toAcc);
+                }
+            });
         } catch (SQLException e) {
-            System.out.println("Withdraw failed: " + e.getMessage());
+            System.out.println("Transfer failed: " + e.getMessage());
+            failed(OpType.TRANSFER);
             return false;
+        } finally {
+            metrics.record(OpType.TRANSFER, start);
         }
     }
 
-    // Transfer: transactional two-updates + two transaction rows
-    public synchronized boolean transfer(int fromAcc, int toAcc, double amount) {
+    // Two UPDATEs, then a single INSERT ... SELECT writes both ledger rows with their new balances.
+    private boolean doTransfer(int fromAcc, int toAcc, double amount) throws SQLException {
         String dec = "UPDATE accounts SET balance = balance - ? WHERE account_number = ? AND balance >= ?";
         String inc = "UPDATE accounts SET balance = balance + ? WHERE account_number = ?";
-        String ins = "INSERT INTO transactions(account_number, type, amount, balance_after, ts) VALUES (?, ?, ?, ?, ?)";
-
-        try (Connection con = DBConnection.getConnection();
+        String ins = "INSERT INTO transactions(account_number, type, amount, balance_after, ts) "
+                   + "SELECT account_number, CASE WHEN account_number = ? THEN 'TRANSFER_OUT' ELSE 'TRANSFER_IN' END, ?, "
+                   + ledgerBalance(fromAcc, toAcc) + ", ? "
+                   + "FROM accounts WHERE account_number IN (?, ?)";
+        int trips = 0;
+        try (Connection con = connect(OpType.TRANSFER);
              PreparedStatement pdec = con.prepareStatement(dec);
              PreparedStatement pinc = con.prepareStatement(inc);
              PreparedStatement pins = con.prepareStatement(ins)) {
 
             con.setAutoCommit(false);
+            long exec = System.nanoTime();
 
             pdec.setDouble(1, amount);
             pdec.setInt(2, fromAcc);
             pdec.setDouble(3, amount);
-            if (pdec.executeUpdate() == 0) { con.rollback(); return false; }
-
             pinc.setDouble(1, amount);
             pinc.setInt(2, toAcc);
-            if (pinc.executeUpdate() == 0) { con.rollback(); return false; }
 
-            // get new balances
-            double newFromBal, newToBal;
-            try (PreparedStatement pst = con.prepareStatement("SELECT balance FROM accounts WHERE account_number = ?")) {
-                pst.setInt(1, fromAcc);
-                try (ResultSet rs = pst.executeQuery()) { rs.next(); newFromBal = rs.getDouble(1); }
-                pst.setInt(1, toAcc);
-                try (ResultSet rs2 = pst.executeQuery()) { rs2.next(); newToBal = rs2.getDouble(1); }
+            // touch the rows in account-number order so opposite transfers can't deadlock on row locks
+            boolean fromFirst = fromAcc < toAcc;
+            trips++;
+            if (!(fromFirst ? tryDebit(con, fromAcc, pdec) : pinc.executeUpdate() > 0)) {
+                trips++; rollback(con, OpType.TRANSFER); return false;
+            }
+            trips++;
+            if (!(fromFirst ? pinc.executeUpdate() > 0 : tryDebit(con, fromAcc, pdec))) {
+                trips++; rollback(con, OpType.TRANSFER); return false;
             }
 
-            // insert transfer out for fromAcc
+            LocalDateTime now = LocalDateTime.now();
             pins.setInt(1, fromAcc);
-            pins.setString(2, "TRANSFER_OUT");
-            pins.setDouble(3, amount);
-            pins.setDouble(4, newFromBal);
-            pins.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            pins.setDouble(2, amount);
+            pins.setTimestamp(3, Timestamp.valueOf(now));
+            pins.setInt(4, fromAcc);
+            pins.setInt(5, toAcc);
+            trips++;
             pins.executeUpdate();
+            // rollup rows in the same account order as the balance rows
+            if (fromAcc < toAcc) {
+                trips += addToRollup(con, fromAcc, now.toLocalDate(), "TRANSFER_OUT", amount);
+                trips += addToRollup(con, toAcc, now.toLocalDate(), "TRANSFER_IN", amount);
+            } else {
+                trips += addToRollup(con, toAcc, now.toLocalDate(), "TRANSFER_IN", amount);
+                trips += addToRollup(con, fromAcc, now.toLocalDate(), "TRANSFER_OUT", amount);
+            }
+            metrics.phase(OpType.TRANSFER, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
 
-            // insert transfer in for toAcc
-            pins.setInt(1, toAcc);
-            pins.setString(2, "TRANSFER_IN");
-            pins.setDouble(3, amount);
-            pins.setDouble(4, newToBal);
-            pins.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            trips++;
+            commit(con, OpType.TRANSFER);
+            evict(fromAcc);
+            evict(toAcc);
+            return true;
+        } finally {
+            roundTrips.record(OpType.TRANSFER, trips);
+        }
+    }
+
+    // Transfer to a hot account: locks only the source (JVM stripe and accounts row) and credits one of the
+    // destination's slot rows. Returns null, having written nothing, if that slot is gone.
+    private Boolean doSlotTransfer(int fromAcc, int toAcc, int slots, double amount) throws SQLException {
+        String dec = "UPDATE accounts SET balance = balance - ? WHERE account_number = ? AND balance >= ?";
+        int trips = 0;
+        try (Connection con = connect(OpType.TRANSFER);
+             PreparedStatement pdec = con.prepareStatement(dec);
+             PreparedStatement pins = con.prepareStatement(ledgerInsert(fromAcc))) {
+
+            con.setAutoCommit(false);
+            long exec = System.nanoTime();
+
+            pdec.setDouble(1, amount);
+            pdec.setInt(2, fromAcc);
+            pdec.setDouble(3, amount);
+            trips++;
+            if (!tryDebit(con, fromAcc, pdec)) { trips++; rollback(con, OpType.TRANSFER); return false; }
+            LocalDateTime now = LocalDateTime.now();
+            trips++;
+            if (!creditSlot(con, toAcc, slots, amount, now)) { trips++; con.rollback(); return null; }
+
+            bindLedgerInsert(pins, "TRANSFER_OUT", amount, fromAcc, now);
+            trips++;
             pins.executeUpdate();
+            trips += insertSlotLedgerRow(con, toAcc, "TRANSFER_IN", amount, now);
+            trips += addToRollup(con, fromAcc, now.toLocalDate(), "TRANSFER_OUT", amount);
+            metrics.phase(OpType.TRANSFER, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
 
-            con.commit();
+            trips++;
+            commit(con, OpType.TRANSFER);
+            evict(fromAcc);
+            evict(toAcc);
             return true;
+        } finally {
+            roundTrips.record(OpType.TRANSFER, trips);
+        }
+    }
+
+    // Borrows a pooled connection, timing the wait as the CONNECTION phase of op.
+    private Connection connect(OpType op) throws SQLException {
+        long t = System.nanoTime();
+        try {
+            return pool.getConnection();
+        } finally {
+            metrics.phase(op, BankMetrics.Phase.CONNECTION, System.nanoTime() - t);
+        }
+    }
+
+    // Pool for a read-only query: a replica that is within the staleness bound and has caught up past
+    // notBefore (epoch millis of the reader's last write, 0 = no such requirement), else the primary.
+    private ConnectionPool readSource(long notBefore) {
+        ReplicaSet r = replicas;
+        return r == null ? pool : r.forRead(notBefore);
+    }
+
+    // Like connect(op) for a pool picked by readSource. A replica that can't hand out a connection is
+    // marked down and the primary is used instead.
+    private Connection connect(OpType op, ConnectionPool source) throws SQLException {
+        if (source == pool) return connect(op);
+        long t = System.nanoTime();
+        try {
+            return source.getConnection();
         } catch (SQLException e) {
-            System.out.println("Transfer failed: " + e.getMessage());
+            ReplicaSet r = replicas;
+            if (r != null) r.markDown(source);
+            return pool.getConnection();
+        } finally {
+            metrics.phase(op, BankMetrics.Phase.CONNECTION, System.nanoTime() - t);
+        }
+    }
+
+    private void commit(Connection con, OpType op) throws SQLException {
+        long t = System.nanoTime();
+        con.commit();
+        metrics.phase(op, BankMetrics.Phase.COMMIT, System.nanoTime() - t);
+    }
+
+    private void rollback(Connection con, OpType op) throws SQLException {
+        metrics.rollback(op);
+        con.rollback();
+    }
+
+    // A write that failed with an SQLException: the pool rolls its transaction back when the connection returns.
+    private void failed(OpType op) {
+        metrics.error(op);
+        metrics.rollback(op);
+    }
+
+    // One attempt of a database write; see withRetries.
+    private interface Attempt<T> {
+        T run() throws SQLException;
+    }
+
+    // Runs attempt, and runs it again (up to LockConflicts.MAX_RETRIES more times, after a jittered backoff)
+    // when it fails because it lost a lock conflict: deadlock victim, serialization failure, lock wait
+    // timeout. The failed attempt's transaction was rolled back when its connection returned to the pool,
+    // and any JVM locks were released, so the next attempt starts clean. Other errors, and a conflict on
+    // the last attempt, are thrown.
+    private <T> T withRetries(OpType op, Attempt<T> attempt) throws SQLException {
+        for (int n = 1; ; n++) {
+            try {
+                return attempt.run();
+            } catch (SQLException e) {
+                if (!LockConflicts.isRetryable(e)) throw e;
+                if (n > LockConflicts.MAX_RETRIES) {
+                    metrics.retriesExhausted(op);
+                    throw e;
+                }
+                metrics.rollback(op);
+                metrics.retry(op);
+                try {
+                    LockConflicts.backoff(n);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Runs work holding the JVM lock stripe of accNo (STRIPED_LOCKS mode), timing the wait as LOCK_WAIT.
+    private <T> T underLock(OpType op, int accNo, Attempt<T> work) throws SQLException {
+        if (locks == null) return work.run();
+        long t = System.nanoTime();
+        locks.lock(accNo);
+        metrics.phase(op, BankMetrics.Phase.LOCK_WAIT, System.nanoTime() - t);
+        try {
+            return work.run();
+        } finally {
+            locks.unlock(accNo);
+        }
+    }
+
+    // Outcome of applySagaStep.
+    enum StepResult { APPLIED, ALREADY_APPLIED, REJECTED }
+
+    // One side of a cross-shard transfer (see ShardedBankJdbc), applied at most once per (sagaId, step):
+    // the saga_steps row is written in the same transaction as the balance change, so a step retried after
+    // a crash finds it and does nothing. A debit is rejected on insufficient funds, any step when the account
+    // doesn't exist. Database errors are thrown so the coordinator can tell them from a rejection.
+    StepResult applySagaStep(String sagaId, String step, int accNo, String type, double amount, boolean debit)
+            throws SQLException {
+        return withRetries(OpType.TRANSFER,
+                () -> underLock(OpType.TRANSFER, accNo, () -> doSagaStep(sagaId, step, accNo, type, amount, debit)));
+    }
+
+    private StepResult doSagaStep(String sagaId, String step, int accNo, String type, double amount, boolean debit)
+            throws SQLException {
+        String upd = debit
+                ? "UPDATE accounts SET balance = balance - ? WHERE account_number = ? AND balance >= ?"
+                : "UPDATE accounts SET balance = balance + ? WHERE account_number = ?";
+        String mark = "INSERT INTO saga_steps(saga_id, step, account_number, amount, applied_at) VALUES (?, ?, ?, ?, ?)";
+        int trips = 0;
+        try (Connection con = connect(OpType.TRANSFER);
+             PreparedStatement pup = con.prepareStatement(upd);
+             PreparedStatement pins = con.prepareStatement(ledgerInsert(accNo));
+             PreparedStatement pmark = con.prepareStatement(mark)) {
+
+            con.setAutoCommit(false);
+            trips++;
+            if (sagaStepApplied(con, sagaId, step)) { trips++; con.rollback(); return StepResult.ALREADY_APPLIED; }
+
+            pup.setDouble(1, amount);
+            pup.setInt(2, accNo);
+            if (debit) pup.setDouble(3, amount);
+            trips++;
+            if (!(debit ? tryDebit(con, accNo, pup) : pup.executeUpdate() > 0)) {
+                trips++; rollback(con, OpType.TRANSFER); return StepResult.REJECTED;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            bindLedgerInsert(pins, type, amount, accNo, now);
+            trips++;
+            pins.executeUpdate();
+            trips += addToRollup(con, accNo, now.toLocalDate(), type, amount);
+
+            pmark.setString(1, sagaId);
+            pmark.setString(2, step);
+            pmark.setInt(3, accNo);
+            pmark.setDouble(4, amount);
+            pmark.setTimestamp(5, Timestamp.valueOf(now));
+            trips++;
+            try {
+                pmark.executeUpdate();
+            } catch (SQLException e) {
+                // integrity violation: a concurrent retry of the same step got there first
+                if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) throw e;
+                trips++;
+                con.rollback();
+                return StepResult.ALREADY_APPLIED;
+            }
+
+            trips++;
+            commit(con, OpType.TRANSFER);
+            evict(accNo);
+            return StepResult.APPLIED;
+        } finally {
+            roundTrips.record(OpType.TRANSFER, trips);
+        }
+    }
+
+    boolean sagaStepApplied(String sagaId, String step) throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            return sagaStepApplied(con, sagaId, step);
+        }
+    }
+
+    private static boolean sagaStepApplied(Connection con, String sagaId, String step) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement("SELECT 1 FROM saga_steps WHERE saga_id = ? AND step = ?")) {
+            pst.setString(1, sagaId);
+            pst.setString(2, step);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private void evict(int accNo) {
+        AccountCache cache = accountCache;
+        if (cache != null) cache.invalidate(accNo);
+    }
+
+    // INSERT_TX_FROM_BALANCE, or INSERT_TX_WITHOUT_BALANCE when accNo is a hot account
+    private String ledgerInsert(int accNo) {
+        return hotSlots.containsKey(accNo) ? INSERT_TX_WITHOUT_BALANCE : INSERT_TX_FROM_BALANCE;
+    }
+
+    // balance_after expression for doTransfer's two ledger rows: NULL for a hot account's row
+    private String ledgerBalance(int fromAcc, int toAcc) {
+        boolean fromHot = hotSlots.containsKey(fromAcc), toHot = hotSlots.containsKey(toAcc);
+        if (fromHot && toHot) return "NULL";
+        if (fromHot || toHot) return "CASE WHEN account_number = " + (fromHot ? fromAcc : toAcc) + " THEN NULL ELSE balance END";
+        return "balance";
+    }
+
+    private static void bindLedgerInsert(PreparedStatement pins, String type, double amount, int accNo,
+                                         LocalDateTime ts) throws SQLException {
+        pins.setString(1, type);
+        pins.setDouble(2, amount);
+        pins.setTimestamp(3, Timestamp.valueOf(ts));
+        pins.setInt(4, accNo);
+    }
+
+    // Adds one write to the account's rollup row for the day; returns the round trips used (1 or 2).
+    // The caller holds the account row lock, so no other transaction can insert the same row in between.
+    private static int addToRollup(Connection con, int accNo, LocalDate day, String type, double amount) throws SQLException {
+        try (PreparedStatement pup = con.prepareStatement(UPDATE_ROLLUP)) {
+            pup.setLong(1, 1);
+            pup.setDouble(2, amount);
+            pup.setInt(3, accNo);
+            pup.setDate(4, Date.valueOf(day));
+            pup.setString(5, type);
+            if (pup.executeUpdate() > 0) return 1;
+        }
+        try (PreparedStatement pins = con.prepareStatement(INSERT_ROLLUP)) {
+            pins.setInt(1, accNo);
+            pins.setDate(2, Date.valueOf(day));
+            pins.setString(3, type);
+            pins.setLong(4, 1);
+            pins.setDouble(5, amount);
+            pins.executeUpdate();
+            return 2;
+        }
+    }
+
+    public BatchResult executeBatch(List<BatchOperation> ops) {
+        return executeBatch(ops, DEFAULT_BATCH_SIZE);
+    }
+
+    // Applies many operations with one database transaction (and one commit) per chunk of batchSize.
+    // Each chunk locks its accounts with a single SELECT ... FOR UPDATE in account-number order,
+    // applies the operations in submission order in memory (same rules as the single-operation path),
+    // then writes balances and ledger rows with JDBC batches. An operation that is rejected (unknown
+    // account, insufficient funds, non-positive amount) fails on its own; a database error fails its whole chunk.
+    public BatchResult executeBatch(List<BatchOperation> ops, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive.");
+        BatchResult result = new BatchResult(ops.size());
+        for (int start = 0; start < ops.size(); start += batchSize) {
+            int end = Math.min(ops.size(), start + batchSize);
+            executeChunk(ops, start, end, result);
+        }
+        return result;
+    }
+
+    private void executeChunk(List<BatchOperation> ops, int start, int end, BatchResult result) {
+        long began = System.nanoTime();
+        try {
+            withRetries(OpType.BATCH, () -> tryChunk(ops, start, end, result));
+        } catch (SQLException e) {
+            System.out.println("Batch failed: " + e.getMessage());
+            failed(OpType.BATCH);
+            for (int i = start; i < end; i++) result.markFailed(i);
+        } finally {
+            metrics.record(OpType.BATCH, began);
+        }
+    }
+
+    // One attempt at a chunk; returns the number of accounts written.
+    private int tryChunk(List<BatchOperation> ops, int start, int end, BatchResult result) throws SQLException {
+        for (int i = start; i < end; i++) result.markFailed(i); // clear what a failed earlier attempt marked
+        TreeMap<Integer, double[]> balances = new TreeMap<>(); // accNo -> {balance}, sorted for lock order
+        for (int i = start; i < end; i++) {
+            BatchOperation op = ops.get(i);
+            balances.put(op.getAccountNumber(), null);
+            if (op.getKind() == BatchOperation.Kind.TRANSFER) balances.put(op.getToAccountNumber(), null);
+        }
+
+        StringBuilder lockSql = new StringBuilder("SELECT account_number, balance FROM accounts WHERE account_number IN (");
+        for (int i = 0; i < balances.size(); i++) lockSql.append(i == 0 ? "?" : ", ?");
+        lockSql.append(") ORDER BY account_number FOR UPDATE");
+        String upd = "UPDATE accounts SET balance = ? WHERE account_number = ?";
+        String ins = "INSERT INTO transactions(account_number, type, amount, balance_after, ts) VALUES (?, ?, ?, ?, ?)";
+
+        int trips = 0;
+        try (Connection con = connect(OpType.BATCH);
+             PreparedStatement plock = con.prepareStatement(lockSql.toString());
+             PreparedStatement pupd = con.prepareStatement(upd);
+             PreparedStatement pins = con.prepareStatement(ins)) {
+
+            con.setAutoCommit(false);
+            long exec = System.nanoTime();
+
+            int p = 1;
+            for (Integer accNo : balances.keySet()) plock.setInt(p++, accNo);
+            trips++;
+            try (ResultSet rs = plock.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getInt(1), new double[]{rs.getDouble(2)});
+                }
+            }
+            // the chunk writes absolute balances, so hot accounts start from their folded balance
+            for (Map.Entry<Integer, double[]> b : balances.entrySet()) {
+                if (b.getValue() != null && hotSlots.containsKey(b.getKey())) {
+                    trips++;
+                    double moved = foldSlots(con, b.getKey());
+                    if (moved != 0) { trips += 2; b.getValue()[0] += moved; }
+                }
+            }
+
+            LocalDateTime nowTime = LocalDateTime.now();
+            Timestamp now = Timestamp.valueOf(nowTime);
+            Set<Integer> touched = new TreeSet<>();
+            TreeMap<Integer, TreeMap<String, double[]>> rollups = new TreeMap<>(); // accNo -> type -> {count, sum}
+            for (int i = start; i < end; i++) {
+                BatchOperation op = ops.get(i);
+                double amount = op.getAmount();
+                double[] src = balances.get(op.getAccountNumber());
+                if (src == null || !isValidAmount(amount)) continue;
+
+                switch (op.getKind()) {
+                    case DEPOSIT:
+                        src[0] += amount;
+                        addLedgerRow(pins, op.getAccountNumber(), "DEPOSIT", amount, src[0], now);
+                        tally(rollups, op.getAccountNumber(), "DEPOSIT", amount);
+                        break;
+                    case WITHDRAW:
+                        if (src[0] < amount) continue;
+                        src[0] -= amount;
+                        addLedgerRow(pins, op.getAccountNumber(), "WITHDRAW", amount, src[0], now);
+                        tally(rollups, op.getAccountNumber(), "WITHDRAW", amount);
+                        break;
+                    case TRANSFER:
+                        double[] dst = balances.get(op.getToAccountNumber());
+                        if (dst == null || src == dst || src[0] < amount) continue;
+                        src[0] -= amount;
+                        dst[0] += amount;
+                        addLedgerRow(pins, op.getAccountNumber(), "TRANSFER_OUT", amount, src[0], now);
+                        addLedgerRow(pins, op.getToAccountNumber(), "TRANSFER_IN", amount, dst[0], now);
+                        tally(rollups, op.getAccountNumber(), "TRANSFER_OUT", amount);
+                        tally(rollups, op.getToAccountNumber(), "TRANSFER_IN", amount);
+                        touched.add(op.getToAccountNumber());
+                        break;
+                }
+                touched.add(op.getAccountNumber());
+                result.markSuccess(i);
+            }
+
+            if (!touched.isEmpty()) {
+                for (Integer accNo : touched) {
+                    pupd.setDouble(1, balances.get(accNo)[0]);
+                    pupd.setInt(2, accNo);
+                    pupd.addBatch();
+                }
+                trips++;
+                pupd.executeBatch();
+                trips++;
+                pins.executeBatch();
+                trips += writeRollups(con, nowTime.toLocalDate(), rollups);
+            }
+            metrics.phase(OpType.BATCH, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
+
+            trips++;
+            commit(con, OpType.BATCH);
+            for (Integer accNo : touched) evict(accNo);
+            return touched.size();
+        } finally {
+            roundTrips.record(OpType.BATCH, trips);
+        }
+    }
+
+    private static void tally(TreeMap<Integer, TreeMap<String, double[]>> rollups, int accNo, String type, double amount) {
+        double[] r = rollups.computeIfAbsent(accNo, k -> new TreeMap<>()).computeIfAbsent(type, k -> new double[2]);
+        r[0]++;
+        r[1] += amount;
+    }
+
+    // Batch form of addToRollup for a chunk whose accounts are all locked: one read finds which rollup rows
+    // exist for the day, then one batch updates those and one batch inserts the rest. Returns the round trips.
+    private static int writeRollups(Connection con, LocalDate day, TreeMap<Integer, TreeMap<String, double[]>> rollups)
+            throws SQLException {
+        StringBuilder q = new StringBuilder("SELECT account_number, type FROM daily_rollups WHERE rollup_day = ? AND account_number IN (");
+        for (int i = 0; i < rollups.size(); i++) q.append(i == 0 ? "?" : ", ?");
+        q.append(")");
+        Set<String> existing = new HashSet<>();
+        int trips = 1;
+        try (PreparedStatement pst = con.prepareStatement(q.toString())) {
+            int p = 1;
+            pst.setDate(p++, Date.valueOf(day));
+            for (Integer accNo : rollups.keySet()) pst.setInt(p++, accNo);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) existing.add(rs.getInt(1) + " " + rs.getString(2));
+            }
+        }
+        try (PreparedStatement pup = con.prepareStatement(UPDATE_ROLLUP);
+             PreparedStatement pins = con.prepareStatement(INSERT_ROLLUP)) {
+            boolean updates = false, inserts = false;
+            for (Map.Entry<Integer, TreeMap<String, double[]>> acc : rollups.entrySet()) {
+                for (Map.Entry<String, double[]> e : acc.getValue().entrySet()) {
+                    double[] r = e.getValue();
+                    if (existing.contains(acc.getKey() + " " + e.getKey())) {
+                        pup.setLong(1, (long) r[0]);
+                        pup.setDouble(2, r[1]);
+                        pup.setInt(3, acc.getKey());
+                        pup.setDate(4, Date.valueOf(day));
+                        pup.setString(5, e.getKey());
+                        pup.addBatch();
+                        updates = true;
+                    } else {
+                        pins.setInt(1, acc.getKey());
+                        pins.setDate(2, Date.valueOf(day));
+                        pins.setString(3, e.getKey());
+                        pins.setLong(4, (long) r[0]);
+                        pins.setDouble(5, r[1]);
+                        pins.addBatch();
+                        inserts = true;
+                    }
+                }
+            }
+            if (updates) { trips++; pup.executeBatch(); }
+            if (inserts) { trips++; pins.executeBatch(); }
+        }
+        return trips;
+    }
+
+    private static void addLedgerRow(PreparedStatement pins, int accNo, String type, double amount,
+                                     double balanceAfter, Timestamp ts) throws SQLException {
+        pins.setInt(1, accNo);
+        pins.setString(2, type);
+        pins.setDouble(3, amount);
+        pins.setDouble(4, balanceAfter);
+        pins.setTimestamp(5, ts);
+        pins.addBatch();
+    }
+
+    // ------------------ Hot accounts ------------------ //
+
+    // Makes accNo a hot account with the given number of slots, or with slots <= 0 a normal one again.
+    // Deposits and incoming transfers to a hot account add to one of its account_slots rows, picked at
+    // random, instead of its accounts row, so concurrent credits (a merchant's incoming payments) don't
+    // all queue on one row lock. Reads add the slots to the balance; a debit that the accounts row alone
+    // can't cover folds the slots in first, so the no-overdraft rule still holds for the whole balance.
+    // A hot account's ledger rows have no balance_after (NULL): an exact value would need every slot locked,
+    // which is the contention slots remove. Readers that need its running balance fold the amounts, as
+    // balanceAsOf and statements do. Any existing slots are folded in before the new ones are created.
+    // Making an account hot starts the consolidation job (see startHotAccountJob) if it isn't running, since
+    // rollups depend on it. Returns false if the account doesn't exist, if HOT_CONSOLIDATE_MS is 0, or on a
+    // database error.
+    public boolean setHotAccount(int accNo, int slots) {
+        if (slots > 0 && HOT_CONSOLIDATE_MS <= 0) {
+            System.out.println("Hot account setup failed: bank.hot.consolidateMs is 0, slot credits would never reach the rollups.");
             return false;
         }
+        String lock = "SELECT balance FROM accounts WHERE account_number = ? FOR UPDATE";
+        String ins = "INSERT INTO account_slots(account_number, slot, balance) VALUES (?, ?, 0)";
+        try {
+            return withRetries(OpType.HOT_ACCOUNT, () -> underLock(OpType.HOT_ACCOUNT, accNo, () -> {
+                try (Connection con = pool.getConnection();
+                     PreparedStatement plock = con.prepareStatement(lock);
+                     PreparedStatement pins = con.prepareStatement(ins)) {
+
+                    con.setAutoCommit(false);
+                    plock.setInt(1, accNo);
+                    try (ResultSet rs = plock.executeQuery()) {
+                        if (!rs.next()) { con.rollback(); return false; }
+                    }
+                    foldSlots(con, accNo);
+                    catchUpRollups(con, accNo);
+                    try (PreparedStatement pdel = con.prepareStatement("DELETE FROM account_slots WHERE account_number = ?")) {
+                        pdel.setInt(1, accNo);
+                        pdel.executeUpdate();
+                    }
+                    for (int i = 0; i < slots; i++) {
+                        pins.setInt(1, accNo);
+                        pins.setInt(2, i);
+                        pins.addBatch();
+                    }
+                    if (slots > 0) pins.executeBatch();
+                    con.commit();
+                    if (slots > 0) hotSlots.put(accNo, slots); else hotSlots.remove(accNo);
+                    evict(accNo);
+                    if (slots > 0) startHotAccountJob(HOT_CONSOLIDATE_MS);
+                    return true;
+                }
+            }));
+        } catch (SQLException e) {
+            System.out.println("Hot account setup failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Hot account -> number of slots (read from account_slots when this instance was created, then kept
+    // up to date by setHotAccount). Set the same hot accounts through every node writing to the database.
+    public Map<Integer, Integer> getHotAccounts() {
+        return Collections.unmodifiableMap(hotSlots);
+    }
+
+    private void loadHotAccounts() {
+        try (Connection con = pool.getConnection();
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT account_number, COUNT(*) FROM account_slots GROUP BY account_number")) {
+            while (rs.next()) hotSlots.put(rs.getInt(1), rs.getInt(2));
+            if (!hotSlots.isEmpty()) startHotAccountJob(HOT_CONSOLIDATE_MS);
+        } catch (SQLException e) {
+            System.out.println("Warning: couldn't load hot accounts: " + e.getMessage());
+        }
+    }
+
+    // Folds the slots of every hot account into its accounts row, and brings its daily_rollups rows up to
+    // date with its slot credits (which don't maintain rollups, that would bring back a hot row; see
+    // catchUpRollups). Balances are correct without this; it keeps the debit path from having to fold, and
+    // the rollups current. Returns the number of accounts consolidated, or -1 if any failed.
+    public int consolidateHotAccounts() {
+        int done = 0;
+        boolean failed = false;
+        for (Integer accNo : hotSlots.keySet()) {
+            try {
+                withRetries(OpType.HOT_ACCOUNT, () -> underLock(OpType.HOT_ACCOUNT, accNo, () -> consolidate(accNo)));
+                done++;
+            } catch (SQLException e) {
+                System.out.println("Consolidating hot account " + accNo + " failed: " + e.getMessage());
+                failed = true;
+            }
+        }
+        return failed ? -1 : done;
+    }
+
+    private Void consolidate(int accNo) throws SQLException {
+        try (Connection con = pool.getConnection();
+             PreparedStatement plock = con.prepareStatement("SELECT balance FROM accounts WHERE account_number = ? FOR UPDATE")) {
+            con.setAutoCommit(false);
+            plock.setInt(1, accNo);
+            try (ResultSet rs = plock.executeQuery()) {
+                if (!rs.next()) { con.rollback(); return null; }
+            }
+            foldSlots(con, accNo);
+            catchUpRollups(con, accNo);
+            con.commit();
+            evict(accNo);
+            return null;
+        }
+    }
+
+    // Runs consolidateHotAccounts every periodMillis on a daemon thread. setHotAccount, and loading hot
+    // accounts at construction, start it with HOT_CONSOLIDATE_MS.
+    public synchronized void startHotAccountJob(long periodMillis) {
+        if (hotJob != null || periodMillis <= 0) return;
+        hotJob = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-hot-accounts");
+            t.setDaemon(true);
+            return t;
+        });
+        hotJob.scheduleWithFixedDelay(this::consolidateHotAccounts, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopHotAccountJob() {
+        if (hotJob != null) {
+            hotJob.shutdownNow();
+            hotJob = null;
+        }
+    }
+
+    // Runs a debit UPDATE (one with "balance >= ?"); if the accounts row alone can't cover it and the
+    // account is hot, folds its slots in and runs it again.
+    private boolean tryDebit(Connection con, int accNo, PreparedStatement debit) throws SQLException {
+        if (debit.executeUpdate() > 0) return true;
+        if (!hotSlots.containsKey(accNo) || foldSlots(con, accNo) == 0) return false;
+        return debit.executeUpdate() > 0;
+    }
+
+    // Adds amount to one of the account's slots, picked at random so concurrent credits rarely share one,
+    // and marks the slot's credits from ts on as not yet in daily_rollups (ts is the ledger row's).
+    private static boolean creditSlot(Connection con, int accNo, int slots, double amount, LocalDateTime ts)
+            throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(
+                "UPDATE account_slots SET balance = balance + ?, "
+              + "pending_since = CASE WHEN pending_since IS NULL OR pending_since > ? THEN ? ELSE pending_since END "
+              + "WHERE account_number = ? AND slot = ?")) {
+            pst.setDouble(1, amount);
+            pst.setTimestamp(2, Timestamp.valueOf(ts));
+            pst.setTimestamp(3, Timestamp.valueOf(ts));
+            pst.setInt(4, accNo);
+            pst.setInt(5, ThreadLocalRandom.current().nextInt(slots));
+            return pst.executeUpdate() > 0;
+        }
+    }
+
+    // Ledger row of a slot credit, with no balance_after (see setHotAccount); returns the round trips used.
+    private static int insertSlotLedgerRow(Connection con, int accNo, String type, double amount, LocalDateTime ts)
+            throws SQLException {
+        try (PreparedStatement pins = con.prepareStatement(
+                "INSERT INTO transactions(account_number, type, amount, balance_after, ts) VALUES (?, ?, ?, ?, ?)")) {
+            pins.setInt(1, accNo);
+            pins.setString(2, type);
+            pins.setDouble(3, amount);
+            pins.setNull(4, Types.DOUBLE);
+            pins.setTimestamp(5, Timestamp.valueOf(ts));
+            pins.executeUpdate();
+        }
+        return 1;
+    }
+
+    // Moves the account's slot balances into its accounts row and returns the amount moved.
+    // The caller holds the accounts row lock; the slots are locked here, always after it.
+    private static double foldSlots(Connection con, int accNo) throws SQLException {
+        double sum = 0;
+        try (PreparedStatement pst = con.prepareStatement(
+                "SELECT balance FROM account_slots WHERE account_number = ? ORDER BY slot FOR UPDATE")) {
+            pst.setInt(1, accNo);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) sum += rs.getDouble(1);
+            }
+        }
+        if (sum == 0) return 0;
+        try (PreparedStatement pup = con.prepareStatement("UPDATE accounts SET balance = balance + ? WHERE account_number = ?");
+             PreparedStatement pzero = con.prepareStatement("UPDATE account_slots SET balance = 0 WHERE account_number = ?")) {
+            pup.setDouble(1, sum);
+            pup.setInt(2, accNo);
+            pup.executeUpdate();
+            pzero.setInt(1, accNo);
+            pzero.executeUpdate();
+        }
+        return sum;
+    }
+
+    // Rebuilds the account's daily_rollups rows from the day of its oldest slot credit not yet in them, and
+    // clears the marks. Runs in the caller's transaction after foldSlots, holding the accounts row and every
+    // slot row: a slot credit holds its slot until it commits, so each one has either committed (its ledger
+    // row is counted here) or is still waiting for its slot and will mark it again.
+    private static void catchUpRollups(Connection con, int accNo) throws SQLException {
+        LocalDateTime since = null;
+        try (PreparedStatement pst = con.prepareStatement(
+                "SELECT pending_since FROM account_slots WHERE account_number = ? FOR UPDATE")) {
+            pst.setInt(1, accNo);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp ts = rs.getTimestamp(1);
+                    if (ts != null && (since == null || ts.toLocalDateTime().isBefore(since))) since = ts.toLocalDateTime();
+                }
+            }
+        }
+        if (since == null) return;
+        rebuildRollups(con, accNo, since.toLocalDate());
+        try (PreparedStatement pclr = con.prepareStatement(
+                "UPDATE account_slots SET pending_since = NULL WHERE account_number = ?")) {
+            pclr.setInt(1, accNo);
+            pclr.executeUpdate();
+        }
+    }
+
+    // Recomputes the account's daily_rollups rows from the given day on from its ledger rows.
+    private static void rebuildRollups(Connection con, int accNo, LocalDate from) throws SQLException {
+        try (PreparedStatement pdel = con.prepareStatement(
+                "DELETE FROM daily_rollups WHERE account_number = ? AND rollup_day >= ?");
+             PreparedStatement pins = con.prepareStatement(
+                "INSERT INTO daily_rollups(account_number, rollup_day, type, tx_count, amount_sum) "
+              + "SELECT account_number, CAST(ts AS DATE), type, COUNT(*), SUM(amount) FROM transactions "
+              + "WHERE account_number = ? AND ts >= ? GROUP BY account_number, CAST(ts AS DATE), type")) {
+            pdel.setInt(1, accNo);
+            pdel.setDate(2, Date.valueOf(from));
+            pdel.executeUpdate();
+            pins.setInt(1, accNo);
+            pins.setTimestamp(2, Timestamp.valueOf(from.atStartOfDay()));
+            pins.executeUpdate();
+        }
+    }
+
+    // ------------------ LedgerEngine persistence ------------------ //
+
+    // Streams every account (as a balance-only Account) from the primary and returns the ledger_watermark:
+    // the sequence number of the last LedgerEngine operation those balances include.
+    // Any hot-account slots are folded into their accounts rows first: the engine writes absolute balances.
+    long loadLedgerState(Consumer<Account> action) throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement()) {
+                st.executeUpdate("UPDATE accounts SET balance = " + FOLDED_BALANCE
+                        + " WHERE account_number IN (SELECT account_number FROM account_slots WHERE balance <> 0)");
+                st.executeUpdate("UPDATE account_slots SET balance = 0 WHERE balance <> 0");
+            }
+            con.commit();
+            con.setAutoCommit(true);
+            long watermark;
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT last_seq FROM ledger_watermark WHERE id = 1")) {
+                watermark = rs.next() ? rs.getLong(1) : 0;
+            }
+            try (PreparedStatement pst = con.prepareStatement(
+                    "SELECT account_number, holder_name, pin, balance FROM accounts ORDER BY account_number")) {
+                pst.setFetchSize(DEFAULT_FETCH_SIZE);
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(Account.balanceOnly(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getDouble(4)));
+                    }
+                }
+            }
+            return watermark;
+        }
+    }
+
+    // Writes a run of operations LedgerEngine has already applied and journaled, in one transaction:
+    // new account rows, ledger rows, final balances, daily rollups and the new ledger_watermark. Entries
+    // at or below the stored watermark are skipped, so a batch whose commit outcome was unknown can
+    // simply be written again.
+    void persistLedgerBatch(List<LedgerEngine.Applied> batch) throws SQLException {
+        String insAcc = "INSERT INTO accounts(account_number, holder_name, pin, balance) VALUES (?, ?, ?, ?)";
+        String ins = "INSERT INTO transactions(account_number, type, amount, balance_after, ts) VALUES (?, ?, ?, ?, ?)";
+        String upd = "UPDATE accounts SET balance = ? WHERE account_number = ?";
+        int trips = 0;
+        List<Integer> touched = new ArrayList<>();
+        try (Connection con = connect(OpType.BATCH);
+             PreparedStatement pacc = con.prepareStatement(insAcc);
+             PreparedStatement pins = con.prepareStatement(ins);
+             PreparedStatement pupd = con.prepareStatement(upd);
+             PreparedStatement pmark = con.prepareStatement("UPDATE ledger_watermark SET last_seq = ? WHERE id = 1")) {
+
+            con.setAutoCommit(false);
+            long exec = System.nanoTime();
+            long watermark;
+            trips++;
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT last_seq FROM ledger_watermark WHERE id = 1")) {
+                watermark = rs.next() ? rs.getLong(1) : 0;
+            }
+
+            TreeMap<Integer, Double> balances = new TreeMap<>(); // final balance per account, in lock order
+            TreeMap<LocalDate, TreeMap<Integer, TreeMap<String, double[]>>> rollups = new TreeMap<>();
+            boolean creates = false;
+            long last = watermark;
+            for (LedgerEngine.Applied a : batch) {
+                if (a.seq <= watermark) continue;
+                last = a.seq;
+                if (a.op == LedgerEngine.SKIPPED) continue;
+                Timestamp ts = new Timestamp(a.at);
+                TreeMap<Integer, TreeMap<String, double[]>> day =
+                        rollups.computeIfAbsent(ts.toLocalDateTime().toLocalDate(), k -> new TreeMap<>());
+                switch (a.op) {
+                    case BankJournal.CREATE:
+                        pacc.setInt(1, a.account);
+                        pacc.setString(2, a.name);
+                        pacc.setInt(3, a.pin);
+                        pacc.setDouble(4, a.amount);
+                        pacc.addBatch();
+                        creates = true;
+                        addLedgerRow(pins, a.account, "OPEN", a.amount, a.balanceAfter, ts);
+                        tally(day, a.account, "OPEN", a.amount);
+                        break;
+                    case BankJournal.DEPOSIT:
+                        addLedgerRow(pins, a.account, "DEPOSIT", a.amount, a.balanceAfter, ts);
+                        tally(day, a.account, "DEPOSIT", a.amount);
+                        break;
+                    case BankJournal.WITHDRAW:
+                        addLedgerRow(pins, a.account, "WITHDRAW", a.amount, a.balanceAfter, ts);
+                        tally(day, a.account, "WITHDRAW", a.amount);
+                        break;
+                    case BankJournal.TRANSFER:
+                        addLedgerRow(pins, a.account, "TRANSFER_OUT", a.amount, a.balanceAfter, ts);
+                        addLedgerRow(pins, a.toAccount, "TRANSFER_IN", a.amount, a.toBalanceAfter, ts);
+                        tally(day, a.account, "TRANSFER_OUT", a.amount);
+                        tally(day, a.toAccount, "TRANSFER_IN", a.amount);
+                        balances.put(a.toAccount, a.toBalanceAfter);
+                        break;
+                }
+                balances.put(a.account, a.balanceAfter);
+            }
+            if (last == watermark) { trips++; con.rollback(); return; } // all of it was already written
+
+            if (creates) { trips++; pacc.executeBatch(); }
+            for (Map.Entry<Integer, Double> b : balances.entrySet()) {
+                pupd.setDouble(1, b.getValue());
+                pupd.setInt(2, b.getKey());
+                pupd.addBatch();
+                touched.add(b.getKey());
+            }
+            if (!balances.isEmpty()) { // else only skipped records: just the watermark moves
+                trips++;
+                pupd.executeBatch();
+                trips++;
+                pins.executeBatch();
+            }
+            for (Map.Entry<LocalDate, TreeMap<Integer, TreeMap<String, double[]>>> day : rollups.entrySet()) {
+                trips += writeRollups(con, day.getKey(), day.getValue());
+            }
+            pmark.setLong(1, last);
+            trips++;
+            pmark.executeUpdate();
+            metrics.phase(OpType.BATCH, BankMetrics.Phase.STATEMENTS, System.nanoTime() - exec);
+
+            trips++;
+            commit(con, OpType.BATCH);
+            for (Integer accNo : touched) evict(accNo);
+        } finally {
+            roundTrips.record(OpType.BATCH, trips);
+        }
     }
 
-    // List accounts (only basic account info; transactions not loaded)
+    // List accounts (only basic account info; transactions not loaded). Prefer forEachAccount for large banks.
     public List<Account> listAccounts() {
         List<Account> result = new ArrayList<>();
-        String q = "SELECT account_number, holder_name, pin, balance FROM accounts ORDER BY account_number ASC";
-        try (Connection con = DBConnection.getConnection();
+        String q = "SELECT account_number, holder_name, pin, " + FOLDED_BALANCE + " AS balance "
+                 + "FROM accounts ORDER BY account_number ASC";
+        try (Connection con = connect(OpType.LIST_ACCOUNTS, readSource(0));
              PreparedStatement pst = con.prepareStatement(q);
              ResultSet rs = pst.executeQuery()) {
 
             while (rs.next()) {
-                int accNo = rs.getInt("account_number");
-                String name = rs.getString("holder_name");
-                int pin = rs.getInt("pin");
-                double bal = rs.getDouble("balance");
-                result.add(new Account(accNo, name, pin, bal));
+                result.add(readAccount(rs));
             }
         } catch (SQLException e) {
             System.out.println("List accounts failed: " + e.getMessage());
+        } finally {
+            roundTrips.record(OpType.LIST_ACCOUNTS, 1);
         }
         return result;
     }
 
-    // Fetch transactions for account (used by Main when viewing transaction history)
+    public boolean forEachAccount(Consumer<Account> action) {
+        return forEachAccount(DEFAULT_FETCH_SIZE, action);
+    }
+
+    // Streams every account in account-number order through a forward-only cursor, in constant memory.
+    public boolean forEachAccount(int fetchSize, Consumer<Account> action) {
+        String q = "SELECT account_number, holder_name, pin, " + FOLDED_BALANCE + " AS balance "
+                 + "FROM accounts ORDER BY account_number ASC";
+        try (Connection con = connect(OpType.LIST_ACCOUNTS, readSource(0));
+             PreparedStatement pst = con.prepareStatement(q, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pst.setFetchSize(fetchSize);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(readAccount(rs));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println("List accounts failed: " + e.getMessage());
+            return false;
+        } finally {
+            roundTrips.record(OpType.LIST_ACCOUNTS, 1);
+        }
+    }
+
+    // Full scan for bulk jobs: the account_number range is split into slices that are read concurrently,
+    // each on its own pooled connection, by a fork/join pool of the given parallelism (capped at the pool size).
+    // The action is called from several threads and in no particular order.
+    // Returns the number of accounts visited, or -1 if any slice failed.
+    public long parallelScan(int parallelism, Consumer<Account> action) {
+        int threads = Math.max(1, Math.min(parallelism, pool.getMaxSize()));
+        int min, max;
+        try (Connection con = connect(OpType.LIST_ACCOUNTS, readSource(0));
+             Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(account_number), MAX(account_number) FROM accounts")) {
+            rs.next();
+            min = rs.getInt(1);
+            if (rs.wasNull()) return 0; // no accounts
+            max = rs.getInt(2);
+        } catch (SQLException e) {
+            System.out.println("List accounts failed: " + e.getMessage());
+            return -1;
+        }
+
+        // a few slices per thread so uneven ranges still balance out
+        long span = (long) max - min + 1;
+        int slice = (int) Math.max(1, span / (threads * 4L));
+        ForkJoinPool fj = new ForkJoinPool(threads);
+        try {
+            return fj.invoke(new ScanTask(min, max, slice, action));
+        } finally {
+            fj.shutdown();
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final int from, to, slice; // inclusive range
+        private final Consumer<Account> action;
+
+        ScanTask(int from, int to, int slice, Consumer<Account> action) {
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+            this.action = action;
+        }
+
+        @Override
+        protected Long compute() {
+            if ((long) to - from + 1 <= slice) return scanRange(from, to, action);
+            int mid = (int) (((long) from + to) >>> 1);
+            ScanTask left = new ScanTask(from, mid, slice, action);
+            ScanTask right = new ScanTask(mid + 1, to, slice, action);
+            left.fork();
+            long r = right.compute();
+            long l = left.join();
+            return l < 0 || r < 0 ? -1 : l + r;
+        }
+    }
+
+    private long scanRange(int from, int to, Consumer<Account> action) {
+        String q = "SELECT account_number, holder_name, pin, " + FOLDED_BALANCE + " AS balance FROM accounts "
+                 + "WHERE account_number BETWEEN ? AND ? ORDER BY account_number ASC";
+        long count = 0;
+        try (Connection con = connect(OpType.LIST_ACCOUNTS, readSource(0));
+             PreparedStatement pst = con.prepareStatement(q, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pst.setFetchSize(DEFAULT_FETCH_SIZE);
+            pst.setInt(1, from);
+            pst.setInt(2, to);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(readAccount(rs));
+                    count++;
+                }
+            }
+            return count;
+        } catch (SQLException e) {
+            System.out.println("Scan of accounts " + from + "-" + to + " failed: " + e.getMessage());
+            return -1;
+        } finally {
+            roundTrips.record(OpType.LIST_ACCOUNTS, 1);
+        }
+    }
+
+    private static Account readAccount(ResultSet rs) throws SQLException {
+        int accNo = rs.getInt("account_number");
+        String name = rs.getString("holder_name");
+        int pin = rs.getInt("pin");
+        double bal = rs.getDouble("balance");
+        return new Account(accNo, name, pin, bal);
+    }
+
+    // Fetch transactions for account (whole history; prefer getTransactionsPage / forEachTransaction for long histories)
     public List<Transaction> getTransactions(int accNo) {
+        return getTransactions(accNo, 0);
+    }
+
+    List<Transaction> getTransactions(int accNo, long notBefore) {
+        long start = System.nanoTime();
         List<Transaction> txs = new ArrayList<>();
         String q = "SELECT type, amount, balance_after, ts FROM transactions WHERE account_number = ? ORDER BY ts ASC, id ASC";
-        try (Connection con = DBConnection.getConnection();
+        try (Connection con = connect(OpType.GET_TRANSACTIONS, readSource(notBefore));
              PreparedStatement pst = con.prepareStatement(q)) {
 
             pst.setInt(1, accNo);
             try (ResultSet rs = pst.executeQuery()) {
                 while (rs.next()) {
-                    String type = rs.getString("type");
-                    double amount = rs.getDouble("amount");
-                    double bal = rs.getDouble("balance_after");
-                    Timestamp t = rs.getTimestamp("ts");
-                    String tsStr = t.toLocalDateTime().toString().replace('T',' ');
-                    txs.add(new Transaction(type, amount, bal, tsStr)); // we will add constructor below
+                    txs.add(readTransaction(rs));
                 }
             }
         } catch (SQLException e) {
             System.out.println("Error loading transactions: " + e.getMessage());
+            metrics.error(OpType.GET_TRANSACTIONS);
+        } finally {
+            roundTrips.record(OpType.GET_TRANSACTIONS, 1);
+            metrics.record(OpType.GET_TRANSACTIONS, start);
         }
         return txs;
     }
+
+    // One page of history after the given cursor (null = from the start), oldest first.
+    // Seeks on (ts, id) so the cost doesn't depend on how deep the page is.
+    public TransactionPage getTransactionsPage(int accNo, HistoryCursor after, int pageSize) {
+        return getTransactionsPage(accNo, after, pageSize, 0);
+    }
+
+    TransactionPage getTransactionsPage(int accNo, HistoryCursor after, int pageSize, long notBefore) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive.");
+        long start = System.nanoTime();
+        String q = after == null
+                ? "SELECT id, type, amount, balance_after, ts FROM transactions WHERE account_number = ? "
+                  + "ORDER BY ts ASC, id ASC LIMIT ?"
+                : "SELECT id, type, amount, balance_after, ts FROM transactions WHERE account_number = ? "
+                  + "AND ts >= ? AND (ts > ? OR id > ?) ORDER BY ts ASC, id ASC LIMIT ?";
+        List<Transaction> txs = new ArrayList<>(pageSize);
+        HistoryCursor next = null;
+        try (Connection con = connect(OpType.GET_TRANSACTIONS, readSource(notBefore));
+             PreparedStatement pst = con.prepareStatement(q)) {
+
+            int i = 1;
+            pst.setInt(i++, accNo);
+            if (after != null) {
+                pst.setTimestamp(i++, after.getTs());
+                pst.setTimestamp(i++, after.getTs());
+                pst.setLong(i++, after.getId());
+            }
+            pst.setInt(i, pageSize + 1); // one extra row tells us whether there is another page
+            try (ResultSet rs = pst.executeQuery()) {
+                Timestamp lastTs = null;
+                long lastId = 0;
+                while (rs.next()) {
+                    if (txs.size() == pageSize) {
+                        next = new HistoryCursor(lastTs, lastId);
+                        break;
+                    }
+                    lastId = rs.getLong("id");
+                    lastTs = rs.getTimestamp("ts");
+                    txs.add(readTransaction(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading transactions: " + e.getMessage());
+            metrics.error(OpType.GET_TRANSACTIONS);
+        } finally {
+            roundTrips.record(OpType.GET_TRANSACTIONS, 1);
+            metrics.record(OpType.GET_TRANSACTIONS, start);
+        }
+        return new TransactionPage(txs, next);
+    }
+
+    public boolean forEachTransaction(int accNo, Consumer<Transaction> action) {
+        return forEachTransaction(accNo, DEFAULT_FETCH_SIZE, action);
+    }
+
+    // Streams the whole history through a forward-only cursor, oldest first, in constant memory.
+    // The connection is held until the last row has been handed to the action.
+    // MySQL only streams with fetchSize Integer.MIN_VALUE, or with useCursorFetch=true in the URL.
+    public boolean forEachTransaction(int accNo, int fetchSize, Consumer<Transaction> action) {
+        return forEachTransaction(accNo, fetchSize, action, 0);
+    }
+
+    boolean forEachTransaction(int accNo, int fetchSize, Consumer<Transaction> action, long notBefore) {
+        String q = "SELECT type, amount, balance_after, ts FROM transactions WHERE account_number = ? ORDER BY ts ASC, id ASC";
+        try (Connection con = connect(OpType.GET_TRANSACTIONS, readSource(notBefore));
+             PreparedStatement pst = con.prepareStatement(q, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pst.setFetchSize(fetchSize);
+            pst.setInt(1, accNo);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(readTransaction(rs));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error streaming transactions: " + e.getMessage());
+            return false;
+        } finally {
+            roundTrips.record(OpType.GET_TRANSACTIONS, 1);
+        }
+    }
+
+    // Balance after every transaction stamped before 'at': nearest balance checkpoint plus the ledger rows since.
+    // Empty if the account doesn't exist or the query failed.
+    public OptionalDouble balanceAsOf(int accNo, LocalDateTime at) {
+        try {
+            return checkpoints.balanceAsOf(accNo, at);
+        } catch (SQLException e) {
+            System.out.println("Error reading balance: " + e.getMessage());
+            return OptionalDouble.empty();
+        }
+    }
+
+    // Opening/closing balance and totals of [from, to); null if the account doesn't exist or the query failed.
+    public AccountStatement getStatement(int accNo, LocalDateTime from, LocalDateTime to) {
+        try {
+            return checkpoints.statement(accNo, from, to);
+        } catch (SQLException e) {
+            System.out.println("Error building statement: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Per-day counts and totals by type for one account over [from, to], read from daily_rollups
+    // (one row per day and type, however many transactions there were).
+    public List<DailyRollup> getDailyRollups(int accNo, LocalDate from, LocalDate to) {
+        String q = "SELECT rollup_day, type, tx_count, amount_sum FROM daily_rollups "
+                 + "WHERE account_number = ? AND rollup_day BETWEEN ? AND ? ORDER BY rollup_day, type";
+        List<DailyRollup> rows = new ArrayList<>();
+        try (Connection con = connect(OpType.REPORT, readSource(0));
+             PreparedStatement pst = con.prepareStatement(q)) {
+
+            pst.setInt(1, accNo);
+            pst.setDate(2, Date.valueOf(from));
+            pst.setDate(3, Date.valueOf(to));
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new DailyRollup(accNo, rs.getDate(1).toLocalDate(), rs.getString(2), rs.getLong(3), rs.getDouble(4)));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading rollups: " + e.getMessage());
+        }
+        return rows;
+    }
+
+    // Bank-wide per-day counts and totals by type over [from, to] (account number 0 in the results).
+    public List<DailyRollup> getDailyTotals(LocalDate from, LocalDate to) {
+        String q = "SELECT rollup_day, type, SUM(tx_count), SUM(amount_sum) FROM daily_rollups "
+                 + "WHERE rollup_day BETWEEN ? AND ? GROUP BY rollup_day, type ORDER BY rollup_day, type";
+        List<DailyRollup> rows = new ArrayList<>();
+        try (Connection con = connect(OpType.REPORT, readSource(0));
+             PreparedStatement pst = con.prepareStatement(q)) {
+
+            pst.setDate(1, Date.valueOf(from));
+            pst.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new DailyRollup(0, rs.getDate(1).toLocalDate(), rs.getString(2), rs.getLong(3), rs.getDouble(4)));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading rollups: " + e.getMessage());
+        }
+        return rows;
+    }
+
+    private static Transaction readTransaction(ResultSet rs) throws SQLException {
+        String type = rs.getString("type");
+        double amount = rs.getDouble("amount");
+        double bal = rs.getDouble("balance_after");
+        long balMinor = rs.wasNull() ? Transaction.NO_BALANCE : Transaction.toMinor(bal); // hot-account row
+        Timestamp t = rs.getTimestamp("ts");
+        // formatted only if displayed
+        return new Transaction(Transaction.typeCode(type), Transaction.toMinor(amount), balMinor, t.getTime());
+    }
 }
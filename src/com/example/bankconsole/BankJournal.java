@@ -0,0 +1,172 @@
+package com.example.bankconsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Append-only operation log for the file-backed Bank.
+//
+// Record layout: [int payloadLength][int crc32(payload)][payload]
+// payload:       [byte op][long seq][long epochMillis][int account][int toAccount][double amount]
+//                CREATE records append [int pin][short nameLength][name bytes, UTF-8]
+//
+// Money movements are fixed-size (41 bytes on disk), so the cost of a write doesn't depend on
+// how much data the bank holds. A torn or corrupt tail (crash mid-append) is detected by the
+// length/CRC check on replay and cut off.
+public class BankJournal implements AutoCloseable {
+    public static final byte CREATE = 1;
+    public static final byte DEPOSIT = 2;
+    public static final byte WITHDRAW = 3;
+    public static final byte TRANSFER = 4;
+
+    private static final int HEADER = 8;
+    private static final int FIXED_PAYLOAD = 1 + 8 + 8 + 4 + 4 + 8;
+    private static final int MAX_PAYLOAD = FIXED_PAYLOAD + 4 + 2 + 0xFFFF;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int syncEvery; // fsync after this many records; 0 = leave it to the OS
+    private final ByteBuffer buf = ByteBuffer.allocate(HEADER + MAX_PAYLOAD);
+    private final CRC32 crc = new CRC32();
+    private int unsynced = 0;
+
+    public interface Visitor {
+        void record(byte op, long seq, long epochMillis, int account, int toAccount, double amount, int pin, String name);
+    }
+
+    public BankJournal(File file, int syncEvery) throws IOException {
+        this.file = file;
+        this.syncEvery = syncEvery;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Reads every intact record in order, drops anything after the first damaged one,
+    // and leaves the channel positioned for appending. Returns the number of records read.
+    public synchronized int replay(Visitor visitor) throws IOException {
+        long pos = 0;
+        long size = channel.size();
+        int count = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (pos + HEADER <= size) {
+            header.clear();
+            channel.read(header, pos);
+            header.flip();
+            int len = header.getInt();
+            int expectedCrc = header.getInt();
+            if (len < FIXED_PAYLOAD || len > MAX_PAYLOAD || pos + HEADER + len > size) break;
+
+            ByteBuffer payload = ByteBuffer.allocate(len);
+            channel.read(payload, pos + HEADER);
+            crc.reset();
+            crc.update(payload.array(), 0, len);
+            if ((int) crc.getValue() != expectedCrc) break;
+
+            payload.flip();
+            byte op = payload.get();
+            long seq = payload.getLong();
+            long at = payload.getLong();
+            int account = payload.getInt();
+            int toAccount = payload.getInt();
+            double amount = payload.getDouble();
+            int pin = 0;
+            String name = null;
+            if (op == CREATE) {
+                pin = payload.getInt();
+                byte[] nameBytes = new byte[payload.getShort() & 0xFFFF];
+                payload.get(nameBytes);
+                name = new String(nameBytes, StandardCharsets.UTF_8);
+            }
+            visitor.record(op, seq, at, account, toAccount, amount, pin, name);
+            pos += HEADER + len;
+            count++;
+        }
+        if (pos < size) {
+            System.out.println("Warning: dropping " + (size - pos) + " damaged bytes at the end of " + file.getName());
+            channel.truncate(pos);
+            channel.force(true);
+        }
+        channel.position(pos);
+        return count;
+    }
+
+    public synchronized void append(byte op, long seq, long epochMillis, int account, int toAccount, double amount)
+            throws IOException {
+        buf.clear();
+        buf.position(HEADER);
+        putFixed(op, seq, epochMillis, account, toAccount, amount);
+        write();
+    }
+
+    // Whether a holder name fits in a CREATE record.
+    static boolean fitsName(String name) {
+        return name.getBytes(StandardCharsets.UTF_8).length <= 0xFFFF;
+    }
+
+    public synchronized void appendCreate(long seq, long epochMillis, int account, double initialDeposit, int pin, String name)
+            throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 0xFFFF) throw new IOException("Holder name too long");
+        buf.clear();
+        buf.position(HEADER);
+        putFixed(CREATE, seq, epochMillis, account, 0, initialDeposit);
+        buf.putInt(pin);
+        buf.putShort((short) nameBytes.length);
+        buf.put(nameBytes);
+        write();
+    }
+
+    private void putFixed(byte op, long seq, long epochMillis, int account, int toAccount, double amount) {
+        buf.put(op);
+        buf.putLong(seq);
+        buf.putLong(epochMillis);
+        buf.putInt(account);
+        buf.putInt(toAccount);
+        buf.putDouble(amount);
+    }
+
+    private void write() throws IOException {
+        int len = buf.position() - HEADER;
+        crc.reset();
+        crc.update(buf.array(), HEADER, len);
+        buf.putInt(0, len);
+        buf.putInt(4, (int) crc.getValue());
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        if (syncEvery > 0 && ++unsynced >= syncEvery) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    // Forces any records not yet synced to disk.
+    public synchronized void sync() throws IOException {
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    // Called once a snapshot covering every record has been written.
+    public synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        unsynced = 0;
+    }
+
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        sync();
+        channel.close();
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.bankconsole;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per-operation latency histograms, per-phase histograms and outcome counters for BankJdbc.
+// Recording only touches preallocated arrays (no allocation on the hot path).
+public class BankMetrics implements BankMetricsMXBean {
+
+    // Where the time of one operation goes.
+    public enum Phase {
+        LOCK_WAIT,   // waiting for the JVM account lock stripes
+        CONNECTION,  // borrowing a pooled connection (includes waiting when the pool is exhausted)
+        STATEMENTS,  // executing the SQL of the operation
+        COMMIT       // commit round trip
+    }
+
+    private static final OpType[] OPS = OpType.values();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LatencyHistogram[] total = new LatencyHistogram[OPS.length];
+    private final LatencyHistogram[][] phases = new LatencyHistogram[OPS.length][PHASES.length];
+    private final LongAdder[] errors = new LongAdder[OPS.length];
+    private final LongAdder[] rollbacks = new LongAdder[OPS.length];
+    private final LongAdder[] retries = new LongAdder[OPS.length];   // attempts re-run after a lock conflict
+    private final LongAdder[] exhausted = new LongAdder[OPS.length]; // lock conflicts given up on
+    private volatile long startedAt = System.currentTimeMillis();
+    private ScheduledExecutorService reporter;
+    private ConnectionPool pool; // optional, included in dumps
+
+    public BankMetrics() {
+        for (int i = 0; i < OPS.length; i++) {
+            total[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+            rollbacks[i] = new LongAdder();
+            retries[i] = new LongAdder();
+            exhausted[i] = new LongAdder();
+            for (int p = 0; p < PHASES.length; p++) phases[i][p] = new LatencyHistogram();
+        }
+    }
+
+    // ------------------ Recording ------------------ //
+
+    // Records a finished operation that started at startNanos (System.nanoTime()).
+    public void record(OpType op, long startNanos) {
+        total[op.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public void phase(OpType op, Phase phase, long nanos) {
+        phases[op.ordinal()][phase.ordinal()].record(nanos);
+    }
+
+    public void error(OpType op) { errors[op.ordinal()].increment(); }
+    public void rollback(OpType op) { rollbacks[op.ordinal()].increment(); }
+    public void retry(OpType op) { retries[op.ordinal()].increment(); }
+    public void retriesExhausted(OpType op) { exhausted[op.ordinal()].increment(); }
+
+    // ------------------ Reading ------------------ //
+
+    public LatencyHistogram histogram(OpType op) { return total[op.ordinal()]; }
+    public LatencyHistogram histogram(OpType op, Phase phase) { return phases[op.ordinal()][phase.ordinal()]; }
+    public long getErrors(OpType op) { return errors[op.ordinal()].sum(); }
+    public long getRollbacks(OpType op) { return rollbacks[op.ordinal()].sum(); }
+    public long getRetries(OpType op) { return retries[op.ordinal()].sum(); }
+    public long getRetriesExhausted(OpType op) { return exhausted[op.ordinal()].sum(); }
+
+    void setPool(ConnectionPool pool) { this.pool = pool; }
+
+    @Override
+    public long getUptimeSeconds() {
+        return (System.currentTimeMillis() - startedAt) / 1000;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> m = new TreeMap<>();
+        for (OpType op : OPS) m.put(op.name(), histogram(op).getCount());
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> m = new TreeMap<>();
+        for (OpType op : OPS) m.put(op.name(), getErrors(op));
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getRollbackCounts() {
+        Map<String, Long> m = new TreeMap<>();
+        for (OpType op : OPS) m.put(op.name(), getRollbacks(op));
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getRetryCounts() {
+        Map<String, Long> m = new TreeMap<>();
+        for (OpType op : OPS) m.put(op.name(), getRetries(op));
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getRetriesExhaustedCounts() {
+        Map<String, Long> m = new TreeMap<>();
+        for (OpType op : OPS) m.put(op.name(), getRetriesExhausted(op));
+        return m;
+    }
+
+    @Override
+    public Map<String, Double> getThroughputPerSecond() {
+        double secs = Math.max(1e-3, (System.currentTimeMillis() - startedAt) / 1000.0);
+        return perOp(h -> h.getCount() / secs);
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() { return perOp(h -> h.getMean() / 1e3); }
+    @Override
+    public Map<String, Double> getP50Micros() { return perOp(h -> h.getPercentile(50) / 1e3); }
+    @Override
+    public Map<String, Double> getP99Micros() { return perOp(h -> h.getPercentile(99) / 1e3); }
+    @Override
+    public Map<String, Double> getMaxMicros() { return perOp(h -> h.getMax() / 1e3); }
+    @Override
+    public Map<String, Double> getPhaseMeanMicros() { return perPhase(h -> h.getMean() / 1e3); }
+    @Override
+    public Map<String, Double> getPhaseP99Micros() { return perPhase(h -> h.getPercentile(99) / 1e3); }
+
+    private Map<String, Double> perOp(ToDoubleFunction<LatencyHistogram> f) {
+        Map<String, Double> m = new TreeMap<>();
+        for (OpType op : OPS) m.put(op.name(), f.applyAsDouble(histogram(op)));
+        return m;
+    }
+
+    private Map<String, Double> perPhase(ToDoubleFunction<LatencyHistogram> f) {
+        Map<String, Double> m = new TreeMap<>();
+        for (OpType op : OPS) {
+            for (Phase p : PHASES) {
+                LatencyHistogram h = histogram(op, p);
+                if (h.getCount() > 0) m.put(op.name() + "." + p.name(), f.applyAsDouble(h));
+            }
+        }
+        return m;
+    }
+
+    // Text report of every operation that has run: counts, throughput, latency percentiles, phase means.
+    @Override
+    public String dump() {
+        double secs = Math.max(1e-3, (System.currentTimeMillis() - startedAt) / 1000.0);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("=== Bank metrics (%.0fs) ===%n", secs));
+        sb.append(String.format("%-16s %9s %9s %7s %7s %7s %9s %9s %9s %9s%n",
+                "operation", "count", "ops/s", "errors", "rollbk", "retries", "mean(us)", "p50(us)", "p99(us)", "max(us)"));
+        for (OpType op : OPS) {
+            LatencyHistogram h = histogram(op);
+            if (h.getCount() == 0 && getErrors(op) == 0) continue;
+            sb.append(String.format("%-16s %9d %9.1f %7d %7d %7d %9.1f %9.1f %9.1f %9.1f%n",
+                    op, h.getCount(), h.getCount() / secs, getErrors(op), getRollbacks(op), getRetries(op),
+                    h.getMean() / 1e3, h.getPercentile(50) / 1e3, h.getPercentile(99) / 1e3, h.getMax() / 1e3));
+            for (Phase p : PHASES) {
+                LatencyHistogram ph = histogram(op, p);
+                if (ph.getCount() == 0) continue;
+                sb.append(String.format("  %-14s %9d %45.1f %9.1f %9.1f %9.1f%n",
+                        p, ph.getCount(), ph.getMean() / 1e3, ph.getPercentile(50) / 1e3,
+                        ph.getPercentile(99) / 1e3, ph.getMax() / 1e3));
+            }
+        }
+        if (pool != null) sb.append(pool).append(System.lineSeparator());
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPS.length; i++) {
+            total[i].reset();
+            errors[i].reset();
+            rollbacks[i].reset();
+            retries[i].reset();
+            exhausted[i].reset();
+            for (int p = 0; p < PHASES.length; p++) phases[i][p].reset();
+        }
+        startedAt = System.currentTimeMillis();
+    }
+
+    // ------------------ Export ------------------ //
+
+    public void registerMBean(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName("com.example.bankconsole:type=BankMetrics,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(on)) server.registerMBean(this, on);
+        } catch (JMException e) {
+            System.out.println("Warning: couldn't register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Prints dump() every periodSeconds on a daemon thread.
+    public synchronized void startReporter(long periodSeconds, PrintStream out) {
+        if (reporter != null || periodSeconds <= 0) return;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> out.print(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bankconsole;
+
+import java.util.Map;
+
+// JMX view of BankMetrics. Latencies are in microseconds; maps are keyed by operation
+// (phase maps by "OPERATION.PHASE").
+public interface BankMetricsMXBean {
+    long getUptimeSeconds();
+    Map<String, Long> getOperationCounts();
+    Map<String, Long> getErrorCounts();
+    Map<String, Long> getRollbackCounts();
+    Map<String, Long> getRetryCounts();           // attempts re-run after a deadlock/serialization failure
+    Map<String, Long> getRetriesExhaustedCounts(); // operations that still conflicted after the last retry
+    Map<String, Double> getThroughputPerSecond();
+    Map<String, Double> getMeanMicros();
+    Map<String, Double> getP50Micros();
+    Map<String, Double> getP99Micros();
+    Map<String, Double> getMaxMicros();
+    Map<String, Double> getPhaseMeanMicros();
+    Map<String, Double> getPhaseP99Micros();
+    String dump();
+    void reset();
+}
@@ -0,0 +1,13 @@
+package com.example.bankconsole;
+
+import java.util.Optional;
+
+// The account operations shared by the file-backed Bank and the database-backed BankJdbc,
+// so tools such as LoadDriver can drive either one.
+public interface BankOperations {
+    Account createAccount(String holderName, int pin, double initialDeposit);
+    Optional<Account> findAccount(int accNo);
+    boolean deposit(int accNo, double amount);
+    boolean withdraw(int accNo, double amount);
+    boolean transfer(int fromAcc, int toAcc, double amount);
+}
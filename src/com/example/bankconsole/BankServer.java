@@ -0,0 +1,456 @@
+package com.example.bankconsole;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// TCP front end: many clients share one BankJdbc over a line protocol (UTF-8, one request per line,
+// one "OK ..." or "ERR ..." reply per request; HISTORY adds one line per transaction after its OK).
+//
+//   PING                          -> OK PONG
+//   CREATE <pin> <amount> <name>  -> OK <accountNumber>
+//   LOGIN <account> <pin>         -> OK <holder name>
+//   BALANCE                       -> OK <balance>
+//   DEPOSIT <amount>              -> OK
+//   WITHDRAW <amount>             -> OK
+//   TRANSFER <toAccount> <amount> -> OK
+//   HISTORY [limit [cursor]]      -> OK <n> <nextCursor or ->, then n lines "<type> <amount> <balanceAfter or -> <epochMillis>"
+//   LOGOUT                        -> OK
+//   QUIT                          -> OK, then the server closes the connection
+//
+// Each connection is served by its own virtual thread, so idle and waiting clients hold no platform thread,
+// and runs as a BankSession, so a client reads its own writes even when reads go to replicas. Requests may be pipelined: they are answered in order, and replies are
+// flushed only when no further request is already waiting.
+// Bank calls go through an AsyncBank, which bounds how many run at once (a request that can't get a slot
+// is answered "ERR busy") and how long one may take ("ERR timeout"; its outcome is then unknown).
+// A connection idle for longer than idleTimeoutMillis is closed.
+//
+// PIN guessing is limited twice: a connection is closed after MAX_LOGIN_FAILURES failed LOGINs, and an
+// account that sees MAX_ACCOUNT_LOGIN_FAILURES failures (from any connections) within ACCOUNT_LOCKOUT_MS
+// refuses LOGIN for ACCOUNT_LOCKOUT_MS.
+public class BankServer implements AutoCloseable {
+
+    // failed LOGINs before the connection is closed (override with -Dbank.server.maxLoginFailures)
+    static final int MAX_LOGIN_FAILURES = Integer.getInteger("bank.server.maxLoginFailures", 3);
+    // failed LOGINs on one account that lock it (override with -Dbank.server.maxAccountLoginFailures)
+    static final int MAX_ACCOUNT_LOGIN_FAILURES = Integer.getInteger("bank.server.maxAccountLoginFailures", 5);
+    // failure window and lockout length (override with -Dbank.server.lockoutMs)
+    static final long ACCOUNT_LOCKOUT_MS = Long.getLong("bank.server.lockoutMs", 15 * 60_000);
+
+    private static final int MAX_LINE = 4096;
+    private static final int DEFAULT_HISTORY = 50;
+    private static final int MAX_HISTORY = 1000;
+
+    private final BankJdbc bank;
+    private final AsyncBank async;
+    private final int port;
+    private final int maxConnections;
+    private final long idleTimeoutMillis;
+    private final ExecutorService connections;
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, LoginFailures> loginFailures = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private volatile boolean closed;
+
+    public BankServer(BankJdbc bank, int port, int maxConnections, long idleTimeoutMillis, long requestTimeoutMillis) {
+        if (maxConnections <= 0) throw new IllegalArgumentException("maxConnections must be positive.");
+        this.bank = bank;
+        this.async = new AsyncBank(bank, bank.getPool().getMaxSize(), 100, requestTimeoutMillis);
+        this.port = port;
+        this.maxConnections = maxConnections;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.connections = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bank-server-connection-", 1).factory());
+    }
+
+    // Port bank.server.port (default 7070, 0 = any free port), at most bank.server.maxConnections (1000)
+    // clients, idle connections closed after bank.server.idleTimeoutMs (300000), requests failed after
+    // bank.server.requestTimeoutMs (10000).
+    public static BankServer fromSystemProperties(BankJdbc bank) {
+        return new BankServer(bank, Integer.getInteger("bank.server.port", 7070),
+                Integer.getInteger("bank.server.maxConnections", 1000),
+                Long.getLong("bank.server.idleTimeoutMs", 300_000), Long.getLong("bank.server.requestTimeoutMs", 10_000));
+    }
+
+    public synchronized void start() throws IOException {
+        if (acceptor != null) return;
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), 1024);
+        acceptor = new Thread(this::acceptLoop, "bank-server-acceptor");
+        acceptor.start();
+    }
+
+    // The bound port (useful after starting on port 0).
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public int getActiveConnections() { return active.get(); }
+    public long getRequestCount() { return requests.sum(); }
+    public long getRefusedConnections() { return refused.sum(); }
+    public AsyncBank getAsyncBank() { return async; }
+
+    // Blocks until the server is closed.
+    public void awaitClose() throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = acceptor;
+        }
+        if (t != null) t.join();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket s;
+            try {
+                s = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) System.out.println("Server accept failed: " + e.getMessage());
+                continue;
+            }
+            if (active.incrementAndGet() > maxConnections) {
+                active.decrementAndGet();
+                refused.increment();
+                try (Socket r = s) {
+                    r.getOutputStream().write("ERR server busy\n".getBytes(StandardCharsets.UTF_8));
+                } catch (IOException ignored) {
+                    // the client is turned away either way
+                }
+                continue;
+            }
+            open.add(s);
+            try {
+                connections.execute(() -> serve(s));
+            } catch (RejectedExecutionException e) {
+                release(s);
+            }
+        }
+    }
+
+    private void release(Socket s) {
+        open.remove(s);
+        active.decrementAndGet();
+        try {
+            s.close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    // ------------------ One connection ------------------ //
+
+    // Per-connection state.
+    private static final class Client {
+        final BankSession session;
+        int account; // logged-in account, 0 = none
+        int failedLogins;
+
+        Client(BankSession session) {
+            this.session = session;
+        }
+    }
+
+    private void serve(Socket s) {
+        try {
+            s.setTcpNoDelay(true);
+            if (idleTimeoutMillis > 0) s.setSoTimeout((int) Math.min(Integer.MAX_VALUE, idleTimeoutMillis));
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+            Client client = new Client(bank.openSession());
+            try {
+                while (true) {
+                    String line = readLine(in);
+                    if (line == null) break;
+                    requests.increment();
+                    StringBuilder reply = new StringBuilder();
+                    boolean quit = handle(client, line.trim(), reply);
+                    out.write(reply.toString());
+                    if (quit) break;
+                    if (!in.ready()) out.flush(); // more pipelined requests waiting: answer them in the same flush
+                }
+            } catch (SocketTimeoutException e) {
+                out.write("ERR idle timeout\n");
+            } catch (LineTooLongException e) {
+                out.write("ERR request longer than " + MAX_LINE + " characters\n");
+            }
+            out.flush();
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            release(s);
+        }
+    }
+
+    private static final class LineTooLongException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    // Like BufferedReader.readLine, but a client can't make the server buffer an unbounded line.
+    private static String readLine(Reader in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') return sb.toString();
+            if (c != '\r') sb.append((char) c);
+            if (sb.length() > MAX_LINE) throw new LineTooLongException();
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    // Appends the reply to one request; returns true when the client asked to close the connection.
+    private boolean handle(Client client, String line, StringBuilder reply) {
+        if (line.isEmpty()) {
+            reply.append("ERR empty request\n");
+            return false;
+        }
+        String[] args = line.split("\\s+");
+        String cmd = args[0].toUpperCase();
+        try {
+            switch (cmd) {
+                case "PING":
+                    reply.append("OK PONG\n");
+                    return false;
+                case "QUIT":
+                    reply.append("OK\n");
+                    return true;
+                case "CREATE": {
+                    if (args.length < 4) throw new IllegalArgumentException("usage: CREATE <pin> <amount> <name>");
+                    int pin = Integer.parseInt(args[1]);
+                    double amount = Double.parseDouble(args[2]);
+                    if (!(amount >= 0) || Double.isInfinite(amount)) {
+                        throw new IllegalArgumentException("amount must be zero or a positive number");
+                    }
+                    String name = line.split("\\s+", 4)[3];
+                    Account a = call(() -> client.session.createAccount(name, pin, amount));
+                    reply.append(a != null ? "OK " + a.getAccountNumber() + "\n" : "ERR create failed\n");
+                    return false;
+                }
+                case "LOGIN": {
+                    if (args.length != 3) throw new IllegalArgumentException("usage: LOGIN <account> <pin>");
+                    int accNo = Integer.parseInt(args[1]);
+                    int pin = Integer.parseInt(args[2]);
+                    client.account = 0;
+                    if (isLockedOut(accNo)) {
+                        reply.append("ERR account temporarily locked after repeated failed logins\n");
+                        return ++client.failedLogins >= MAX_LOGIN_FAILURES;
+                    }
+                    if (!call(() -> client.session.authenticate(accNo, pin))) {
+                        loginFailed(accNo);
+                        if (++client.failedLogins >= MAX_LOGIN_FAILURES) {
+                            reply.append("ERR too many failed logins, closing connection\n");
+                            return true;
+                        }
+                        reply.append("ERR invalid account number or PIN\n");
+                        return false;
+                    }
+                    loginFailures.remove(accNo);
+                    Account a = call(() -> client.session.findAccount(accNo)).orElse(null);
+                    if (a == null) {
+                        reply.append("ERR invalid account number or PIN\n");
+                        return false;
+                    }
+                    client.account = accNo;
+                    reply.append("OK ").append(a.getHolderName()).append('\n');
+                    return false;
+                }
+                case "LOGOUT":
+                    client.account = 0;
+                    reply.append("OK\n");
+                    return false;
+                default:
+                    break;
+            }
+
+            // everything else acts on the logged-in account
+            if (client.account == 0) {
+                reply.append("ERR not logged in\n");
+                return false;
+            }
+            int accNo = client.account;
+            switch (cmd) {
+                case "BALANCE": {
+                    Account a = call(() -> client.session.findAccount(accNo)).orElse(null);
+                    reply.append(a != null ? String.format(Locale.ROOT, "OK %.2f\n", a.getBalance()) : "ERR account not found\n");
+                    return false;
+                }
+                case "DEPOSIT": {
+                    double amount = amount(args, 1, "usage: DEPOSIT <amount>");
+                    reply.append(call(() -> client.session.deposit(accNo, amount)) ? "OK\n" : "ERR deposit failed\n");
+                    return false;
+                }
+                case "WITHDRAW": {
+                    double amount = amount(args, 1, "usage: WITHDRAW <amount>");
+                    reply.append(call(() -> client.session.withdraw(accNo, amount))
+                            ? "OK\n" : "ERR insufficient funds or failed\n");
+                    return false;
+                }
+                case "TRANSFER": {
+                    if (args.length != 3) throw new IllegalArgumentException("usage: TRANSFER <toAccount> <amount>");
+                    int to = Integer.parseInt(args[1]);
+                    double amount = amount(args, 2, "usage: TRANSFER <toAccount> <amount>");
+                    reply.append(call(() -> client.session.transfer(accNo, to, amount))
+                            ? "OK\n" : "ERR transfer failed, check balance and account number\n");
+                    return false;
+                }
+                case "HISTORY": {
+                    int limit = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_HISTORY;
+                    if (limit <= 0 || limit > MAX_HISTORY) throw new IllegalArgumentException("limit must be 1.." + MAX_HISTORY);
+                    HistoryCursor after = args.length > 2 ? parseCursor(args[2]) : null;
+                    TransactionPage page = call(() -> client.session.getTransactionsPage(accNo, after, limit));
+                    reply.append("OK ").append(page.getTransactions().size()).append(' ')
+                         .append(page.hasMore() ? formatCursor(page.getNext()) : "-").append('\n');
+                    for (Transaction t : page.getTransactions()) {
+                        reply.append(t.getType()).append(' ').append(t.getAmount()).append(' ')
+                             .append(t.hasBalanceAfter() ? String.valueOf(t.getBalanceAfter()) : "-").append(' ')
+                             .append(t.getEpochMillis()).append('\n');
+                    }
+                    return false;
+                }
+                default:
+                    reply.append("ERR unknown command ").append(args[0]).append('\n');
+                    return false;
+            }
+        } catch (IllegalArgumentException e) { // includes NumberFormatException
+            reply.append("ERR bad request: ").append(e.getMessage()).append('\n');
+        } catch (RequestFailedException e) {
+            reply.append("ERR ").append(e.getMessage()).append('\n');
+        }
+        return false;
+    }
+
+    // The amount at args[i], which must be the last argument: a positive, finite number.
+    private static double amount(String[] args, int i, String usage) {
+        if (args.length != i + 1) throw new IllegalArgumentException(usage);
+        double amount = Double.parseDouble(args[i]);
+        if (!BankJdbc.isValidAmount(amount)) throw new IllegalArgumentException("amount must be a positive number");
+        return amount;
+    }
+
+    // ------------------ Login limits ------------------ //
+
+    // Failed LOGINs on one account within the current window.
+    private static final class LoginFailures {
+        int count;         // guarded by this
+        long windowStart;  // epoch millis of the first failure counted
+        long lockedUntil;  // epoch millis; 0 = not locked
+    }
+
+    private boolean isLockedOut(int accNo) {
+        LoginFailures f = loginFailures.get(accNo);
+        if (f == null) return false;
+        synchronized (f) {
+            return f.lockedUntil > System.currentTimeMillis();
+        }
+    }
+
+    private void loginFailed(int accNo) {
+        long now = System.currentTimeMillis();
+        if (loginFailures.size() > 100_000) { // someone is sweeping account numbers: drop stale entries
+            loginFailures.values().removeIf(f -> {
+                synchronized (f) {
+                    return f.lockedUntil <= now && now - f.windowStart > ACCOUNT_LOCKOUT_MS;
+                }
+            });
+        }
+        LoginFailures f = loginFailures.computeIfAbsent(accNo, k -> new LoginFailures());
+        synchronized (f) {
+            if (now - f.windowStart > ACCOUNT_LOCKOUT_MS) {
+                f.count = 0;
+                f.windowStart = now;
+            }
+            if (++f.count >= MAX_ACCOUNT_LOGIN_FAILURES) {
+                f.lockedUntil = now + ACCOUNT_LOCKOUT_MS;
+                f.count = 0;
+                System.out.println("Server: account " + accNo + " locked for " + ACCOUNT_LOCKOUT_MS / 1000
+                        + "s after " + MAX_ACCOUNT_LOGIN_FAILURES + " failed logins.");
+            }
+        }
+    }
+
+    // A bank call that didn't produce a result: no free slot, timed out, or threw.
+    private static final class RequestFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RequestFailedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private <T> T call(Supplier<T> op) {
+        try {
+            return async.submit(op).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) throw new RequestFailedException("timeout");
+            if (cause instanceof RejectedExecutionException) throw new RequestFailedException("busy");
+            throw new RequestFailedException("failed: " + (cause != null ? cause.getMessage() : e.getMessage()));
+        }
+    }
+
+    // Cursors travel as <epochMillis>:<nanos>:<id>.
+    private static String formatCursor(HistoryCursor c) {
+        return c.getTs().getTime() + ":" + c.getTs().getNanos() + ":" + c.getId();
+    }
+
+    private static HistoryCursor parseCursor(String s) {
+        String[] f = s.split(":");
+        if (f.length != 3) throw new IllegalArgumentException("bad cursor " + s);
+        Timestamp ts = new Timestamp(Long.parseLong(f[0]));
+        ts.setNanos(Integer.parseInt(f[1]));
+        return new HistoryCursor(ts, Long.parseLong(f[2]));
+    }
+
+    // ------------------ Shutdown ------------------ //
+
+    // Stops accepting, closes every client connection and waits for the bank calls in flight.
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Error closing server socket: " + e.getMessage());
+        }
+        for (Socket s : open) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+        }
+        connections.shutdown();
+        async.close();
+    }
+
+    @Override
+    public String toString() {
+        return "BankServer{port=" + (serverSocket != null ? getPort() : port) + ", connections=" + active.get()
+                + ", requests=" + requests.sum() + ", refused=" + refused.sum() + "}";
+    }
+}
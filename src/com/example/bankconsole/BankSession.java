@@ -0,0 +1,76 @@
+package com.example.bankconsole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// One user's conversation with a BankJdbc (e.g. a logged-in console user), from BankJdbc.openSession().
+// Writes go to the primary as usual. After a write, the session's reads only use a replica that has
+// caught up with it, so the user always sees their own deposits, withdrawals and transfers; other
+// sessions' writes may show up later, within the ReplicaSet's staleness bound.
+public class BankSession implements BankOperations {
+
+    private final BankJdbc bank;
+    private volatile long lastWriteMillis; // when this session's last write had committed, 0 = none yet
+
+    BankSession(BankJdbc bank) {
+        this.bank = bank;
+    }
+
+    public BankJdbc getBank() { return bank; }
+
+    // Taken after the write returns, i.e. after its commit.
+    private void wrote() {
+        lastWriteMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public Account createAccount(String holderName, int pin, double initialDeposit) {
+        Account acc = bank.createAccount(holderName, pin, initialDeposit);
+        wrote();
+        return acc;
+    }
+
+    @Override
+    public boolean deposit(int accNo, double amount) {
+        boolean ok = bank.deposit(accNo, amount);
+        wrote();
+        return ok;
+    }
+
+    @Override
+    public boolean withdraw(int accNo, double amount) {
+        boolean ok = bank.withdraw(accNo, amount);
+        wrote();
+        return ok;
+    }
+
+    @Override
+    public boolean transfer(int fromAcc, int toAcc, double amount) {
+        boolean ok = bank.transfer(fromAcc, toAcc, amount);
+        wrote();
+        return ok;
+    }
+
+    // Always checked on the primary.
+    public boolean authenticate(int accNo, int pin) {
+        return bank.authenticate(accNo, pin);
+    }
+
+    @Override
+    public Optional<Account> findAccount(int accNo) {
+        return bank.findAccount(accNo, lastWriteMillis);
+    }
+
+    public List<Transaction> getTransactions(int accNo) {
+        return bank.getTransactions(accNo, lastWriteMillis);
+    }
+
+    public TransactionPage getTransactionsPage(int accNo, HistoryCursor after, int pageSize) {
+        return bank.getTransactionsPage(accNo, after, pageSize, lastWriteMillis);
+    }
+
+    public boolean forEachTransaction(int accNo, Consumer<Transaction> action) {
+        return bank.forEachTransaction(accNo, BankJdbc.DEFAULT_FETCH_SIZE, action, lastWriteMillis);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bankconsole;
+
+// One money movement submitted through BankJdbc.executeBatch.
+public final class BatchOperation {
+
+    public enum Kind { DEPOSIT, WITHDRAW, TRANSFER }
+
+    private final Kind kind;
+    private final int accountNumber;   // source account for transfers
+    private final int toAccountNumber; // only used by transfers
+    private final double amount;
+
+    private BatchOperation(Kind kind, int accountNumber, int toAccountNumber, double amount) {
+        this.kind = kind;
+        this.accountNumber = accountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+    }
+
+    public static BatchOperation deposit(int accNo, double amount) {
+        return new BatchOperation(Kind.DEPOSIT, accNo, 0, amount);
+    }
+
+    public static BatchOperation withdraw(int accNo, double amount) {
+        return new BatchOperation(Kind.WITHDRAW, accNo, 0, amount);
+    }
+
+    public static BatchOperation transfer(int fromAcc, int toAcc, double amount) {
+        return new BatchOperation(Kind.TRANSFER, fromAcc, toAcc, amount);
+    }
+
+    public Kind getKind() { return kind; }
+    public int getAccountNumber() { return accountNumber; }
+    public int getToAccountNumber() { return toAccountNumber; }
+    public double getAmount() { return amount; }
+
+    @Override
+    public String toString() {
+        return kind == Kind.TRANSFER
+                ? String.format("TRANSFER %d -> %d Rs.%.2f", accountNumber, toAccountNumber, amount)
+                : String.format("%s %d Rs.%.2f", kind, accountNumber, amount);
+    }
+}
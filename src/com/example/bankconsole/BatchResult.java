@@ -0,0 +1,35 @@
+package com.example.bankconsole;
+
+// Per-operation outcome of BankJdbc.executeBatch, in submission order.
+public final class BatchResult {
+    private final boolean[] success;
+    private int succeeded;
+
+    BatchResult(int size) {
+        this.success = new boolean[size];
+    }
+
+    void markSuccess(int index) {
+        if (!success[index]) {
+            success[index] = true;
+            succeeded++;
+        }
+    }
+
+    void markFailed(int index) {
+        if (success[index]) {
+            success[index] = false;
+            succeeded--;
+        }
+    }
+
+    public boolean isSuccess(int index) { return success[index]; }
+    public int size() { return success.length; }
+    public int getSucceeded() { return succeeded; }
+    public int getFailed() { return success.length - succeeded; }
+
+    @Override
+    public String toString() {
+        return "BatchResult{ok=" + succeeded + ", failed=" + getFailed() + "}";
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bankconsole;
+
+// How BankJdbc serialises money movements inside one JVM.
+public enum ConcurrencyMode {
+    // per-account striped locks in the JVM, plus the database row locks
+    STRIPED_LOCKS,
+    // no JVM locking at all; rely only on the database row locks
+    DATABASE_LOCKS
+}
@@ -0,0 +1,395 @@
+package com.example.bankconsole;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded JDBC connection pool.
+// Connections handed out are proxies: calling close() returns the physical connection to the pool,
+// so callers keep using try-with-resources exactly as they did with DriverManager connections.
+// Statements, result sets and metadata obtained through a proxy are proxies too, so their getConnection()
+// (and a result set's getStatement()) lead back to the pooled connection, never the physical one: closing
+// that would close a connection the pool still owns.
+public class ConnectionPool implements AutoCloseable {
+
+    // idle connections older than this are checked with isValid() before being handed out; younger ones
+    // are trusted, so a busy pool doesn't pay a validation round trip per borrow
+    public static final long DEFAULT_VALIDATE_AFTER_IDLE_MS = 5000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final long validateAfterIdleMillis;
+    private final int validationTimeoutSeconds = 2;
+
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final Map<Connection, Borrow> inUse = new ConcurrentHashMap<>();
+    private int totalConnections = 0; // guarded by this
+    private boolean closed = false;   // guarded by this
+
+    private final ScheduledExecutorService leakDetector;
+
+    // metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize, long borrowTimeoutMillis, long leakThresholdMillis) {
+        this(url, user, password, minSize, maxSize, borrowTimeoutMillis, leakThresholdMillis, DEFAULT_VALIDATE_AFTER_IDLE_MS);
+    }
+
+    // leakThresholdMillis: report connections held longer than this (0 = off; capturing the borrower's
+    // stack costs an allocation per borrow). validateAfterIdleMillis: see DEFAULT_VALIDATE_AFTER_IDLE_MS.
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long leakThresholdMillis, long validateAfterIdleMillis) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+
+        prewarm();
+
+        if (leakThresholdMillis > 0) {
+            leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "bank-pool-leak-detector");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1000, leakThresholdMillis / 2);
+            leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            leakDetector = null;
+        }
+    }
+
+    // Open minSize connections up front so the first requests don't pay the handshake.
+    private void prewarm() {
+        for (int i = 0; i < minSize; i++) {
+            try {
+                Connection c = openPhysical();
+                synchronized (this) {
+                    totalConnections++;
+                    idle.push(new IdleConnection(c));
+                }
+            } catch (SQLException e) {
+                // stderr, like the leak reports: the pool starts anyway and opens connections on demand
+                System.err.println("Warning: pool pre-warm failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection c = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        return c;
+    }
+
+    // Borrow a connection, waiting up to borrowTimeoutMillis when the pool is exhausted.
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        boolean waited = false;
+
+        while (true) {
+            IdleConnection candidate = null;
+            Connection physical = null;
+            boolean mayCreate = false;
+            synchronized (this) {
+                while (true) {
+                    if (closed) throw new SQLException("Connection pool is closed");
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pop();
+                        break;
+                    }
+                    if (totalConnections < maxSize) {
+                        totalConnections++; // reserve the slot before opening outside the lock
+                        mayCreate = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLException("Timed out after " + borrowTimeoutMillis
+                                + " ms waiting for a database connection (pool max " + maxSize + ")");
+                    }
+                    waited = true;
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+            }
+
+            if (mayCreate) {
+                try {
+                    physical = openPhysical();
+                } catch (SQLException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else {
+                physical = candidate.connection;
+                if (System.nanoTime() - candidate.idleSince > TimeUnit.MILLISECONDS.toNanos(validateAfterIdleMillis)
+                        && !isUsable(physical)) {
+                    validationFailures.incrementAndGet();
+                    discard(physical);
+                    continue;
+                }
+            }
+
+            recordBorrow(start, waited);
+            return wrap(physical);
+        }
+    }
+
+    private boolean isUsable(Connection c) {
+        try {
+            return c.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordBorrow(long start, boolean waited) {
+        borrowCount.incrementAndGet();
+        if (waited) {
+            long waitedNanos = System.nanoTime() - start;
+            waitCount.incrementAndGet();
+            totalWaitNanos.addAndGet(waitedNanos);
+            maxWaitNanos.accumulateAndGet(waitedNanos, Math::max);
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        Borrow borrow = new Borrow(physical, leakThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null);
+        inUse.put(physical, borrow);
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, borrow);
+    }
+
+    // Called when a borrowed proxy is closed.
+    private void giveBack(Connection physical) {
+        inUse.remove(physical);
+        try {
+            // never hand out a connection with a half-finished transaction
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(physical);
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                totalConnections--;
+                closeQuietly(physical);
+                return;
+            }
+            idle.push(new IdleConnection(physical));
+            notify();
+        }
+    }
+
+    private void discard(Connection physical) {
+        closeQuietly(physical);
+        releaseSlot();
+    }
+
+    private synchronized void releaseSlot() {
+        totalConnections--;
+        notify();
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+            // already broken
+        }
+    }
+
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Borrow b : inUse.values()) {
+            if (!b.reported && now - b.borrowedAt > leakThresholdMillis) {
+                b.reported = true;
+                leakCount.incrementAndGet();
+                // stderr, so the report doesn't end up in the console menus or the server's output
+                System.err.println("Warning: possible connection leak, held for " + (now - b.borrowedAt) + " ms");
+                b.origin.printStackTrace(System.err);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            while (!idle.isEmpty()) {
+                closeQuietly(idle.pop().connection);
+                totalConnections--;
+            }
+            notifyAll();
+        }
+        if (leakDetector != null) leakDetector.shutdownNow();
+    }
+
+    // ------------------ Metrics ------------------ //
+
+    public synchronized int getTotalConnections() { return totalConnections; }
+    public synchronized int getIdleConnections() { return idle.size(); }
+    public int getActiveConnections() { return inUse.size(); }
+    public int getMaxSize() { return maxSize; }
+    public long getBorrowCount() { return borrowCount.get(); }
+    public long getWaitCount() { return waitCount.get(); }
+    public long getTotalWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()); }
+    public long getMaxWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()); }
+    public long getTimeoutCount() { return timeoutCount.get(); }
+    public long getCreatedCount() { return createdCount.get(); }
+    public long getValidationFailures() { return validationFailures.get(); }
+    public long getLeakCount() { return leakCount.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("Pool{total=%d, idle=%d, active=%d, max=%d, borrows=%d, waits=%d, avgWait=%.2fms, maxWait=%dms, timeouts=%d, leaks=%d}",
+                getTotalConnections(), getIdleConnections(), getActiveConnections(), maxSize,
+                getBorrowCount(), getWaitCount(),
+                waitCount.get() == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / waitCount.get(),
+                getMaxWaitMillis(), getTimeoutCount(), getLeakCount());
+    }
+
+    private static final class IdleConnection {
+        final Connection connection;
+        final long idleSince = System.nanoTime();
+
+        IdleConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    // One borrow of a physical connection; also the invocation handler of the proxy handed out.
+    private final class Borrow implements InvocationHandler {
+        private final Connection physical;
+        private final Throwable origin;
+        private final long borrowedAt = System.currentTimeMillis();
+        private volatile boolean reported = false;
+        private boolean returned = false;
+
+        Borrow(Connection physical, Throwable origin) {
+            this.physical = physical;
+            this.origin = origin;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                synchronized (this) {
+                    if (returned) return null;
+                    returned = true;
+                }
+                giveBack(physical);
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                synchronized (this) {
+                    if (returned) return true;
+                }
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else {
+                synchronized (this) {
+                    if (returned) throw new SQLException("Connection has been returned to the pool");
+                }
+            }
+            try {
+                return child(method.invoke(physical, args), method.getReturnType(), (Connection) proxy, null);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Wraps a Statement, ResultSet or DatabaseMetaData obtained through a pooled connection; anything else
+    // is returned as is. statement: the proxy a result set reports from getStatement() (null: ask the driver).
+    private static Object child(Object result, Class<?> type, Connection connection, Object statement) {
+        if (result == null || !(Statement.class.isAssignableFrom(type) || type == ResultSet.class
+                || type == DatabaseMetaData.class)) {
+            return result;
+        }
+        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                new Child(result, connection, statement));
+    }
+
+    // Invocation handler of the proxies made by child().
+    private static final class Child implements InvocationHandler {
+        private final Object target;
+        private final Connection connection;
+        private final Object statement;
+
+        Child(Object target, Connection connection, Object statement) {
+            this.target = target;
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (args == null && "getConnection".equals(name)) {
+                return connection;
+            } else if (args == null && "getStatement".equals(name) && statement != null) {
+                return statement;
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            try {
+                Object result = method.invoke(target, args);
+                return child(result, method.getReturnType(), connection, target instanceof Statement ? proxy : statement);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
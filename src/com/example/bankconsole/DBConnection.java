@@ -1,21 +1,65 @@
 package com.example.bankconsole;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
 
 public class DBConnection {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/bank";
-    private static final String USER = "root";
-    private static final String PASSWORD = "Rishika_12";
+    // Defaults can be overridden with -Dbank.db.url=... etc. (e.g. an embedded database for tests)
+    private static final String URL = System.getProperty("bank.db.url", "jdbc:mysql://localhost:3306/bank");
+    private static final String USER = System.getProperty("bank.db.user", "root");
+    private static final String PASSWORD = System.getProperty("bank.db.password", "Rishika_12");
+    private static final String DRIVER = System.getProperty("bank.db.driver", "com.mysql.cj.jdbc.Driver");
 
-    public static Connection getConnection() {
+    private static final int POOL_MIN = Integer.getInteger("bank.pool.min", 2);
+    private static final int POOL_MAX = Integer.getInteger("bank.pool.max", 10);
+    private static final long POOL_TIMEOUT_MS = Long.getLong("bank.pool.timeoutMs", 5000);
+    private static final long POOL_LEAK_MS = Long.getLong("bank.pool.leakMs", 0);
+    private static final long POOL_VALIDATE_MS =
+            Long.getLong("bank.pool.validateAfterMs", ConnectionPool.DEFAULT_VALIDATE_AFTER_IDLE_MS);
+
+    private static volatile ConnectionPool pool;
+
+    // Shared pool, created (and pre-warmed) on first use.
+    public static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DBConnection.class) {
+                p = pool;
+                if (p == null) {
+                    loadDriver(DRIVER);
+                    p = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN, POOL_MAX, POOL_TIMEOUT_MS, POOL_LEAK_MS, POOL_VALIDATE_MS);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    // A separate pool for another database (e.g. one shard) with the same credentials and pool settings.
+    public static ConnectionPool createPool(String url) {
+        loadDriver(DRIVER);
+        return new ConnectionPool(url, USER, PASSWORD, POOL_MIN, POOL_MAX, POOL_TIMEOUT_MS, POOL_LEAK_MS, POOL_VALIDATE_MS);
+    }
+
+    // Borrow a pooled connection; close() hands it back to the pool.
+    public static Connection getConnection() throws SQLException {
+        return pool().getConnection();
+    }
+
+    static void loadDriver(String driverClass) {
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            return DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (Exception e) {
-            System.out.println("Database connection failed: " + e.getMessage());
-            return null;
+            Class.forName(driverClass);
+        } catch (ClassNotFoundException e) {
+            // JDBC 4 drivers on the classpath register themselves; only warn
+            System.out.println("Warning: JDBC driver " + driverClass + " not found: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 }
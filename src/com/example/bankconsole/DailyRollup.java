@@ -0,0 +1,31 @@
+package com.example.bankconsole;
+
+import java.time.LocalDate;
+
+// Count and total amount of one transaction type on one day, for one account (or all accounts: accountNumber 0).
+public final class DailyRollup {
+    private final int accountNumber;
+    private final LocalDate day;
+    private final String type;
+    private final long count;
+    private final double amount;
+
+    public DailyRollup(int accountNumber, LocalDate day, String type, long count, double amount) {
+        this.accountNumber = accountNumber;
+        this.day = day;
+        this.type = type;
+        this.count = count;
+        this.amount = amount;
+    }
+
+    public int getAccountNumber() { return accountNumber; }
+    public LocalDate getDay() { return day; }
+    public String getType() { return type; }
+    public long getCount() { return count; }
+    public double getAmount() { return amount; }
+
+    @Override
+    public String toString() {
+        return String.format("%s | %s | %d | Rs.%.2f", day, type, count, amount);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.bankconsole;
+
+import java.sql.Timestamp;
+
+// Position in an account's history: the (ts, id) of the last row already returned.
+// Pages seek past this key instead of using OFFSET, so deep pages cost the same as the first.
+public final class HistoryCursor {
+    private final Timestamp ts;
+    private final long id;
+
+    public HistoryCursor(Timestamp ts, long id) {
+        this.ts = ts;
+        this.id = id;
+    }
+
+    public Timestamp getTs() { return ts; }
+    public long getId() { return id; }
+
+    @Override
+    public String toString() {
+        return ts + "#" + id;
+    }
+}
@@ -0,0 +1,522 @@
+package com.example.bankconsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Single-writer in-memory ledger in front of a BankJdbc, for money movement rates that one database
+// transaction per operation can't reach.
+//
+// Callers publish operations into an OperationRing. One writer thread takes them in order and applies them
+// to balance-only Account objects, so the usual rules hold (positive amounts, no overdraft) and no account
+// needs a lock beyond the single writer. Every applied operation is appended to a BankJournal. After each
+// run of operations the writer fsyncs the journal once (group commit) and only then completes the callers'
+// futures. A second thread writes the applied operations to the accounts/transactions tables in batches
+// (BankJdbc.persistLedgerBatch), advancing ledger_watermark in the same transaction.
+//
+// On startup the balances are loaded from the database, and the journal records after the watermark are
+// applied again and queued for persistence. Once the journal is larger than journalMaxBytes, the writer
+// waits (up to RESET_WAIT_MS) for persistence to catch up and then empties it; if persistence is still
+// behind, new operations are rejected until it catches up.
+//
+// If the journal can't be written, the engine stops: operations of the unsynced run fail as "outcome
+// unknown" (they may be in the journal and come back on restart), and reads are refused, because the
+// in-memory balances include those operations.
+//
+// The engine must be the only writer of the accounts in its database. BankJdbc reads (history, listings,
+// rollups) see its operations once they are persisted.
+public class LedgerEngine implements BankOperations, AutoCloseable {
+
+    // journal file (override with -Dbank.engine.journal)
+    static final String JOURNAL_PATH = System.getProperty("bank.engine.journal", "data/ledger.wal");
+    // slots in the operation ring (override with -Dbank.engine.ringSize)
+    static final int DEFAULT_RING_SIZE = Integer.getInteger("bank.engine.ringSize", 1 << 16);
+    // applied operations per database transaction (override with -Dbank.engine.persistBatch)
+    static final int DEFAULT_PERSIST_BATCH = Integer.getInteger("bank.engine.persistBatch", 2000);
+    // fsync the journal before acknowledging; false acknowledges once the OS has the write
+    static final boolean FSYNC = Boolean.parseBoolean(System.getProperty("bank.engine.fsync", "true"));
+    // journal size that triggers emptying it (override with -Dbank.engine.journalMaxBytes)
+    static final long JOURNAL_MAX_BYTES = Long.getLong("bank.engine.journalMaxBytes", 64L << 20);
+    // longest the writer waits for persistence before emptying a full journal (override with -Dbank.engine.resetWaitMs)
+    static final long RESET_WAIT_MS = Long.getLong("bank.engine.resetWaitMs", 10_000);
+    // most operations acknowledged by one fsync
+    private static final int MAX_RUN = 4096;
+    // Applied.op of a journal record that no longer applied on replay: persisting it only advances the watermark
+    static final byte SKIPPED = 0;
+
+    // An operation the writer applied, as handed to persistence.
+    static final class Applied {
+        final long seq;
+        final byte op;
+        final int account;
+        final int toAccount;
+        final double amount;
+        final long at;
+        final double balanceAfter;   // of account
+        final double toBalanceAfter; // of toAccount (transfers)
+        final int pin;               // CREATE only
+        final String name;           // CREATE only
+
+        Applied(long seq, byte op, int account, int toAccount, double amount, long at,
+                double balanceAfter, double toBalanceAfter, int pin, String name) {
+            this.seq = seq;
+            this.op = op;
+            this.account = account;
+            this.toAccount = toAccount;
+            this.amount = amount;
+            this.at = at;
+            this.balanceAfter = balanceAfter;
+            this.toBalanceAfter = toBalanceAfter;
+            this.pin = pin;
+            this.name = name;
+        }
+    }
+
+    private final BankJdbc bank;
+    private final OperationRing ring;
+    private final BankJournal journal;
+    private final int persistBatch;
+    private final boolean fsync;
+    private final long journalMaxBytes;
+    private final Map<Integer, Account> accounts = new ConcurrentHashMap<>(); // written by the writer only
+    private final BlockingQueue<Applied> toPersist;
+    private final List<Applied> pending = new ArrayList<>(); // writer: applied in the current run, not yet synced
+    private final AtomicInteger producers = new AtomicInteger(); // callers between the closed check and publish
+    private final Thread writer;
+    private final Thread persister;
+    private volatile boolean closed;
+    private volatile boolean writerDone;
+    private volatile IOException failure; // journal error: the engine stops taking operations
+    private volatile boolean journalFull; // journal over journalMaxBytes with persistence behind: new operations are rejected
+    private volatile long appliedSeq;     // journal sequence of the last applied operation
+    private volatile long persistedSeq;   // ... of the last one committed to the database
+    private volatile long persistedAt;    // stamp of the last one committed (stamps never go backwards)
+    private long lastAt;                  // writer: stamp of the last applied operation
+
+    public LedgerEngine(BankJdbc bank) throws IOException, SQLException {
+        this(bank, new File(JOURNAL_PATH), DEFAULT_RING_SIZE, DEFAULT_PERSIST_BATCH, FSYNC, JOURNAL_MAX_BYTES);
+    }
+
+    public LedgerEngine(BankJdbc bank, File journalFile, int ringSize, int persistBatch, boolean fsync, long journalMaxBytes)
+            throws IOException, SQLException {
+        if (persistBatch <= 0) throw new IllegalArgumentException("Persist batch size must be positive.");
+        this.bank = bank;
+        this.ring = new OperationRing(ringSize);
+        this.persistBatch = persistBatch;
+        this.fsync = fsync;
+        this.journalMaxBytes = journalMaxBytes;
+        this.toPersist = new ArrayBlockingQueue<>(Math.max(ring.capacity(), persistBatch * 4));
+
+        long watermark = bank.loadLedgerState(a -> accounts.put(a.getAccountNumber(), a));
+        appliedSeq = watermark;
+        persistedSeq = watermark;
+        // operations applied here reach the database later than their stamps; checkpoints must wait for them
+        bank.getCheckpoints().holdBack(this::persistedBefore);
+
+        File dir = journalFile.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+        this.journal = new BankJournal(journalFile, 0); // synced per run of operations, see finishRun
+
+        persister = new Thread(this::persistLoop, "bank-ledger-persister");
+        persister.setDaemon(true);
+        persister.start();
+        int[] replayed = {0};
+        try {
+            journal.replay((op, seq, at, account, toAccount, amount, pin, name) -> {
+                if (seq <= appliedSeq) return; // already in the database
+                lastAt = Math.max(lastAt, at);
+                Applied a = apply(op, seq, lastAt, account, toAccount, amount, pin, name);
+                if (a == null) {
+                    System.out.println("Warning: journal record " + seq + " no longer applies; skipped.");
+                    // its sequence number is still taken, and the watermark must still move past it
+                    a = new Applied(seq, SKIPPED, account, toAccount, amount, lastAt, 0, 0, 0, null);
+                } else {
+                    replayed[0]++;
+                }
+                enqueue(a);
+                appliedSeq = seq;
+            });
+        } catch (IOException e) {
+            writerDone = true; // lets the persister finish
+            throw e;
+        }
+        if (replayed[0] > 0) System.out.println("Recovered " + replayed[0] + " operations from the ledger journal.");
+
+        writer = new Thread(this::writeLoop, "bank-ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public BankJdbc getBank() { return bank; }
+    public int getAccountCount() { return accounts.size(); }
+    public long getAppliedSeq() { return appliedSeq; }
+    public long getPersistedSeq() { return persistedSeq; }
+    // operations acknowledged but not yet in the database
+    public long getPersistBacklog() { return appliedSeq - persistedSeq; }
+
+    // Epoch millis before which every applied operation is in the database (Long.MAX_VALUE if all of them
+    // are), for BalanceCheckpoints. Stamps don't go backwards, so the operations still to persist are all
+    // stamped at or after the last persisted one. Stays in force after close() while operations are left
+    // to replay.
+    long persistedBefore() {
+        long at = persistedAt; // read before persistedSeq: an older stamp is only more cautious
+        return persistedSeq >= appliedSeq ? Long.MAX_VALUE : at;
+    }
+
+    // ------------------ Operations ------------------ //
+
+    public CompletableFuture<Account> createAccountAsync(String holderName, int pin, double initialDeposit) {
+        if (!(initialDeposit >= 0) || Double.isInfinite(initialDeposit)) {
+            // checked here too so a rejected deposit doesn't use up an account number
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Initial deposit must be zero or a positive number."));
+        }
+        int accNo;
+        try {
+            accNo = bank.getAccountNumbers().next();
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return submit(BankJournal.CREATE, accNo, 0, initialDeposit, pin, holderName);
+    }
+
+    public CompletableFuture<Boolean> depositAsync(int accNo, double amount) {
+        return submit(BankJournal.DEPOSIT, accNo, 0, amount, 0, null);
+    }
+
+    public CompletableFuture<Boolean> withdrawAsync(int accNo, double amount) {
+        return submit(BankJournal.WITHDRAW, accNo, 0, amount, 0, null);
+    }
+
+    public CompletableFuture<Boolean> transferAsync(int fromAcc, int toAcc, double amount) {
+        return submit(BankJournal.TRANSFER, fromAcc, toAcc, amount, 0, null);
+    }
+
+    @Override
+    public Account createAccount(String holderName, int pin, double initialDeposit) {
+        return await(createAccountAsync(holderName, pin, initialDeposit), null);
+    }
+
+    @Override
+    public boolean deposit(int accNo, double amount) {
+        return await(depositAsync(accNo, amount), false);
+    }
+
+    @Override
+    public boolean withdraw(int accNo, double amount) {
+        return await(withdrawAsync(accNo, amount), false);
+    }
+
+    @Override
+    public boolean transfer(int fromAcc, int toAcc, double amount) {
+        return await(transferAsync(fromAcc, toAcc, amount), false);
+    }
+
+    // A copy of the account as the writer has it now: every acknowledged operation, and possibly some that
+    // are applied but not yet acknowledged (their journal sync is under way). Empty once the engine has stopped
+    // on a journal error.
+    @Override
+    public Optional<Account> findAccount(int accNo) {
+        if (failure != null) return Optional.empty();
+        Account a = accounts.get(accNo);
+        return a == null ? Optional.empty() : Optional.of(a.copyBalanceOnly());
+    }
+
+    public boolean authenticate(int accNo, int pin) {
+        if (failure != null) return false;
+        Account a = accounts.get(accNo);
+        return a != null && a.checkPin(pin);
+    }
+
+    private static <T> T await(CompletableFuture<T> f, T onError) {
+        try {
+            return f.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.out.println("Operation failed: " + cause.getMessage());
+            return onError;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(byte op, int account, int toAccount, double amount, int pin, String name) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        producers.incrementAndGet();
+        try {
+            if (closed) {
+                IOException cause = failure;
+                f.completeExceptionally(cause != null
+                        ? new IllegalStateException("Ledger engine stopped: " + cause.getMessage(), cause)
+                        : new IllegalStateException("Ledger engine is closed"));
+                return f;
+            }
+            if (journalFull) {
+                f.completeExceptionally(new IllegalStateException("Ledger engine is busy: database persistence is behind"));
+                return f;
+            }
+            long seq = ring.claim();
+            OperationRing.Slot s = ring.slot(seq);
+            s.op = op;
+            s.account = account;
+            s.toAccount = toAccount;
+            s.amount = amount;
+            s.pin = pin;
+            s.name = name;
+            s.result = f;
+            ring.publish(seq, s);
+            return f;
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    // ------------------ Writer thread ------------------ //
+
+    private void writeLoop() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[MAX_RUN];
+        Object[] results = new Object[MAX_RUN];
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            OperationRing.Slot slot = ring.slot(next);
+            if (!OperationRing.isPublished(slot, next)) {
+                // closed is set before producers is read, so a caller that gets past its closed check is seen here
+                if (closed && producers.get() == 0 && ring.lastClaimed() < next) break;
+                if (journalFull) maybeResetJournal(0);
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            int n = 0;
+            while (n < MAX_RUN && OperationRing.isPublished(slot, next)) {
+                futures[n] = slot.result;
+                results[n] = failure == null ? process(slot) : null;
+                ring.release(next);
+                n++;
+                next++;
+                slot = ring.slot(next);
+            }
+            finishRun(futures, results, n);
+            maybeResetJournal(RESET_WAIT_MS);
+        }
+        writerDone = true;
+    }
+
+    // Busy-spins briefly for the lowest hand-over latency, then backs off so an idle engine doesn't burn a core.
+    private static int idle(int idle) {
+        if (idle < 200) Thread.onSpinWait();
+        else if (idle < 300) Thread.yield();
+        else LockSupport.parkNanos(50_000);
+        return idle + 1;
+    }
+
+    // Applies and journals one published operation; returns its result (Account for CREATE, else Boolean).
+    private Object process(OperationRing.Slot s) {
+        long seq = appliedSeq + 1;
+        long at = Math.max(System.currentTimeMillis(), lastAt); // a clock step back mustn't reorder stamps
+        Applied a = apply(s.op, seq, at, s.account, s.toAccount, s.amount, s.pin, s.name);
+        if (a == null) return s.op == BankJournal.CREATE ? null : Boolean.FALSE;
+        try {
+            if (s.op == BankJournal.CREATE) journal.appendCreate(seq, at, s.account, s.amount, s.pin, s.name);
+            else journal.append(s.op, seq, at, s.account, s.toAccount, s.amount);
+        } catch (IOException e) {
+            fail(e);
+            return null;
+        }
+        appliedSeq = seq;
+        lastAt = at;
+        pending.add(a);
+        return s.op == BankJournal.CREATE ? accounts.get(s.account).copyBalanceOnly() : Boolean.TRUE;
+    }
+
+    // Applies one operation to the in-memory accounts; returns what to persist, or null if it was rejected
+    // (including amounts BankJdbc would refuse: NaN, infinite, negative, or zero except as an initial deposit).
+    private Applied apply(byte op, long seq, long at, int account, int toAccount, double amount, int pin, String name) {
+        Account src = accounts.get(account);
+        switch (op) {
+            case BankJournal.CREATE:
+                if (src != null || !(amount >= 0) || Double.isInfinite(amount)) return null;
+                accounts.put(account, Account.balanceOnly(account, name, pin, amount));
+                return new Applied(seq, op, account, 0, amount, at, amount, 0, pin, name);
+            case BankJournal.DEPOSIT:
+                if (src == null || !BankJdbc.isValidAmount(amount)) return null;
+                src.deposit(amount, at);
+                return new Applied(seq, op, account, 0, amount, at, src.getBalance(), 0, 0, null);
+            case BankJournal.WITHDRAW:
+                if (src == null || !BankJdbc.isValidAmount(amount) || !src.withdraw(amount, at)) return null;
+                return new Applied(seq, op, account, 0, amount, at, src.getBalance(), 0, 0, null);
+            case BankJournal.TRANSFER:
+                Account dst = accounts.get(toAccount);
+                if (src == null || dst == null || src == dst || !BankJdbc.isValidAmount(amount) || !src.transferOut(amount, at)) return null;
+                dst.transferIn(amount, at);
+                return new Applied(seq, op, account, toAccount, amount, at, src.getBalance(), dst.getBalance(), 0, null);
+            default:
+                return null;
+        }
+    }
+
+    // Group commit: one fsync for the whole run, then the run is handed to persistence and acknowledged.
+    // After a journal error, every operation of the run fails with its outcome unknown: it is applied in
+    // memory (which is why the stopped engine refuses reads) and may or may not survive a restart.
+    private void finishRun(CompletableFuture<?>[] futures, Object[] results, int n) {
+        if (failure == null && fsync && !pending.isEmpty()) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        IOException error = failure;
+        if (error == null) {
+            for (Applied a : pending) enqueue(a);
+        }
+        pending.clear();
+        for (int i = 0; i < n; i++) {
+            if (error != null) {
+                futures[i].completeExceptionally(new IllegalStateException(
+                        "Ledger engine stopped, outcome unknown until restart: " + error.getMessage(), error));
+            } else {
+                complete(futures[i], results[i]);
+            }
+            futures[i] = null;
+            results[i] = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void complete(CompletableFuture<?> f, Object value) {
+        ((CompletableFuture<Object>) f).complete(value);
+    }
+
+    // Empties a large journal once everything in it has reached the database, waiting up to waitMillis for
+    // that (operations wait meanwhile). If persistence is still behind, sets journalFull so new operations are
+    // rejected instead of the writer blocking indefinitely; the idle writer keeps checking until it catches up.
+    private void maybeResetJournal(long waitMillis) {
+        if (failure != null) return;
+        try {
+            if (journal.size() < journalMaxBytes) return;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+            while (persistedSeq < appliedSeq && persister.isAlive() && System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(100_000);
+            }
+            if (persistedSeq == appliedSeq) {
+                journal.reset();
+                if (journalFull) System.out.println("Ledger engine: persistence caught up; taking operations again.");
+                journalFull = false;
+            } else if (!journalFull) {
+                journalFull = true;
+                System.out.println("Ledger engine: journal is full and " + getPersistBacklog()
+                        + " operations are not yet persisted; rejecting new operations until they are.");
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure != null) return;
+        System.out.println("Ledger engine stopped: journal write failed: " + e.getMessage());
+        failure = e;
+        closed = true;
+    }
+
+    // Blocks while persistence is a full queue behind (backpressure); never gives up the operation.
+    private void enqueue(Applied a) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                toPersist.put(a);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // ------------------ Persistence thread ------------------ //
+
+    private void persistLoop() {
+        List<Applied> batch = new ArrayList<>(persistBatch);
+        try {
+            while (true) {
+                Applied first = toPersist.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (writerDone && toPersist.isEmpty()) return;
+                    continue;
+                }
+                batch.add(first);
+                toPersist.drainTo(batch, persistBatch - 1);
+                persist(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // close() stopped waiting; the rest is replayed from the journal on the next start
+        }
+    }
+
+    // Writes one batch, retrying until the database takes it; the operations are safe in the journal meanwhile.
+    private void persist(List<Applied> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                bank.persistLedgerBatch(batch);
+                Applied last = batch.get(batch.size() - 1);
+                persistedAt = last.at;
+                persistedSeq = last.seq;
+                return;
+            } catch (SQLException e) {
+                if (attempt == 1 || attempt % 100 == 0) {
+                    System.out.println("Warning: ledger persistence failed (attempt " + attempt + "), retrying: " + e.getMessage());
+                }
+                Thread.sleep(Math.min(5_000, 10L << Math.min(attempt, 9)));
+            }
+        }
+    }
+
+    // ------------------ Shutdown ------------------ //
+
+    @Override
+    public void close() {
+        close(30_000);
+    }
+
+    // Stops taking operations, finishes the ones already published and waits up to waitMillis for them to
+    // reach the database. Whatever isn't persisted by then is replayed from the journal on the next start.
+    public synchronized void close(long waitMillis) {
+        closed = true;
+        try {
+            writer.join();
+            persister.join(waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (persister.isAlive()) {
+            System.out.println("Ledger engine: " + getPersistBacklog() + " operations not yet persisted; "
+                    + "they will be replayed from the journal.");
+            persister.interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Error closing ledger journal: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerEngine{accounts=" + accounts.size() + ", appliedSeq=" + appliedSeq
+                + ", persistedSeq=" + persistedSeq + ", ring=" + ring.capacity() + "}";
+    }
+}
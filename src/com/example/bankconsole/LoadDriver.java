@@ -0,0 +1,381 @@
+package com.example.bankconsole;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Headless driver for Bank or BankJdbc: either replays an operation script or generates a synthetic
+// workload, optionally at a fixed target rate, and reports throughput and latency percentiles.
+//
+//   java -cp out:<driver.jar> [-Dload.*=...] com.example.bankconsole.Main --load
+//   java -cp out:<driver.jar> [-Dload.*=...] com.example.bankconsole.Main --script ops.txt
+//
+// Settings (system properties):
+//   load.backend        jdbc (default), sharded (ShardedBankJdbc over bank.shards.urls), engine (LedgerEngine)
+//                       or file
+//   load.file           data file for the file backend (default data/load-bank.dat)
+//   load.accounts       accounts created before a synthetic run (default 1000)
+//   load.initialBalance opening balance of those accounts (default 10000)
+//   load.mix            op weights, e.g. deposit=30,withdraw=30,transfer=30,find=10 (the default)
+//   load.hotAccounts    fraction of the accounts that are "hot" (default 0.01)
+//   load.hotShare       fraction of operations that go to a hot account (default 0 = uniform)
+//   load.maxAmount      amounts are drawn from 1..maxAmount (default 100)
+//   load.threads        concurrent workers (default 8; scripts always run on one thread, in order)
+//   load.rate           target ops/s over all workers, 0 = as fast as possible (default 0)
+//   load.seconds        length of a synthetic run (default 30)
+//   load.ops            stop after this many synthetic operations instead (default 0 = use seconds)
+//   load.seed           random seed, so a run can be repeated (default: time based)
+//
+// Script format, one operation per line ('#' starts a comment):
+//   CREATE <name> <pin> <amount>
+//   DEPOSIT <acc> <amount>
+//   WITHDRAW <acc> <amount>
+//   TRANSFER <from> <to> <amount>
+//   FIND <acc>
+//   SLEEP <millis>
+// <acc> is an account number, or @n for the n-th account created by the script (from 1).
+//
+// With a target rate, latency is measured from when each operation was due rather than when it
+// was sent, so a stall shows up in the percentiles of every operation that queued behind it.
+public class LoadDriver {
+
+    // operations the driver issues; the reporting slots reuse OpType
+    private static final OpType[] OPS = {OpType.CREATE_ACCOUNT, OpType.DEPOSIT, OpType.WITHDRAW, OpType.TRANSFER, OpType.FIND_ACCOUNT};
+
+    private final BankOperations bank;
+    private final LatencyHistogram[] latency = new LatencyHistogram[OpType.values().length];
+    private final LongAdder[] ok = new LongAdder[OpType.values().length];
+    private final LongAdder[] rejected = new LongAdder[OpType.values().length];
+    private final LongAdder[] errors = new LongAdder[OpType.values().length];
+
+    public LoadDriver(BankOperations bank) {
+        this.bank = bank;
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new LatencyHistogram();
+            ok[i] = new LongAdder();
+            rejected[i] = new LongAdder();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String backend = System.getProperty("load.backend", "jdbc");
+        BankOperations bank;
+        Bank fileBank = null;
+        ShardedBankJdbc sharded = null;
+        LedgerEngine engine = null;
+        if ("file".equals(backend)) {
+            fileBank = new Bank(System.getProperty("load.file", "data/load-bank.dat"));
+            bank = fileBank;
+        } else if ("sharded".equals(backend)) {
+            sharded = ShardedBankJdbc.fromSystemProperties();
+            bank = sharded;
+        } else if ("engine".equals(backend)) {
+            engine = new LedgerEngine(new BankJdbc());
+            bank = engine;
+        } else {
+            bank = new BankJdbc();
+        }
+
+        LoadDriver driver = new LoadDriver(bank);
+        long rate = Long.getLong("load.rate", 0);
+        try {
+            long start = System.nanoTime();
+            if (args.length >= 2 && "--script".equals(args[0])) {
+                List<String> lines = readScript(args[1]);
+                System.out.println("Replaying " + lines.size() + " lines from " + args[1] + " against " + backend);
+                driver.runScript(lines, rate);
+            } else {
+                Workload w = Workload.fromSystemProperties();
+                System.out.println("Creating " + w.accounts + " accounts on " + backend + "...");
+                int[] accNos = driver.createAccounts(w.accounts, w.initialBalance);
+                start = System.nanoTime();
+                System.out.println("Running " + w + " threads=" + Integer.getInteger("load.threads", 8)
+                        + " rate=" + (rate > 0 ? rate + "/s" : "max"));
+                driver.runSynthetic(w, accNos, Integer.getInteger("load.threads", 8), rate,
+                        Long.getLong("load.seconds", 30), Long.getLong("load.ops", 0));
+            }
+            System.out.print(driver.report((System.nanoTime() - start) / 1e9));
+            if (bank instanceof BankJdbc) System.out.println(((BankJdbc) bank).getPool());
+            if (sharded != null) {
+                for (BankJdbc shard : sharded.getShards()) System.out.println(shard.getPool());
+            }
+            if (engine != null) System.out.println(engine);
+        } finally {
+            if (fileBank != null) fileBank.close();
+            if (sharded != null) sharded.close();
+            if (engine != null) engine.close();
+            DBConnection.shutdown();
+        }
+    }
+
+    // ------------------ Synthetic workload ------------------ //
+
+    // Op mix, account skew and amounts of a synthetic run.
+    static final class Workload {
+        final int accounts;
+        final double initialBalance;
+        final int[] weights = new int[OPS.length]; // per entry of OPS; CREATE is never generated
+        final double hotAccounts;
+        final double hotShare;
+        final int maxAmount;
+        final long seed;
+
+        Workload(int accounts, double initialBalance, String mix, double hotAccounts, double hotShare, int maxAmount, long seed) {
+            if (accounts < 2) throw new IllegalArgumentException("A workload needs at least 2 accounts.");
+            this.accounts = accounts;
+            this.initialBalance = initialBalance;
+            this.hotAccounts = hotAccounts;
+            this.hotShare = hotShare;
+            this.maxAmount = Math.max(1, maxAmount);
+            this.seed = seed;
+            for (String part : mix.split(",")) {
+                String[] kv = part.trim().split("=");
+                if (kv.length != 2) throw new IllegalArgumentException("Bad load.mix entry: " + part);
+                weights[indexOf(opFor(kv[0].trim()))] = Integer.parseInt(kv[1].trim());
+            }
+            int total = 0;
+            for (int w : weights) total += w;
+            if (total <= 0) throw new IllegalArgumentException("load.mix has no positive weight.");
+        }
+
+        static Workload fromSystemProperties() {
+            return new Workload(
+                    Integer.getInteger("load.accounts", 1000),
+                    Double.parseDouble(System.getProperty("load.initialBalance", "10000")),
+                    System.getProperty("load.mix", "deposit=30,withdraw=30,transfer=30,find=10"),
+                    Double.parseDouble(System.getProperty("load.hotAccounts", "0.01")),
+                    Double.parseDouble(System.getProperty("load.hotShare", "0")),
+                    Integer.getInteger("load.maxAmount", 100),
+                    Long.getLong("load.seed", System.nanoTime()));
+        }
+
+        OpType nextOp(SplittableRandom rnd) {
+            int total = 0;
+            for (int w : weights) total += w;
+            int r = rnd.nextInt(total);
+            for (int i = 0; i < weights.length; i++) {
+                r -= weights[i];
+                if (r < 0) return OPS[i];
+            }
+            return OPS[OPS.length - 1];
+        }
+
+        // Index into the account array; hotShare of the picks land in the first hotAccounts of it.
+        int nextAccount(SplittableRandom rnd) {
+            int hot = Math.max(1, (int) (accounts * hotAccounts));
+            if (hotShare > 0 && rnd.nextDouble() < hotShare) return rnd.nextInt(hot);
+            return rnd.nextInt(accounts);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("mix=");
+            for (int i = 0; i < OPS.length; i++) {
+                if (weights[i] > 0) sb.append(OPS[i]).append('=').append(weights[i]).append(' ');
+            }
+            return sb.append("accounts=").append(accounts)
+                    .append(String.format(" hot=%.2f%%/%.0f%%", hotAccounts * 100, hotShare * 100))
+                    .append(" seed=").append(seed).toString();
+        }
+    }
+
+    int[] createAccounts(int count, double initialBalance) {
+        int[] accNos = new int[count];
+        for (int i = 0; i < count; i++) {
+            Account a = bank.createAccount("load-" + i, 1234, initialBalance);
+            if (a == null) throw new IllegalStateException("Couldn't create load test accounts.");
+            accNos[i] = a.getAccountNumber();
+        }
+        return accNos;
+    }
+
+    // Runs until maxOps operations have been issued (if > 0) or the time is up.
+    public void runSynthetic(Workload w, int[] accNos, int threads, long ratePerSecond, long seconds, long maxOps)
+            throws InterruptedException {
+        long intervalNanos = ratePerSecond > 0 ? Math.max(1, threads * 1_000_000_000L / ratePerSecond) : 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long opsPerThread = maxOps > 0 ? (maxOps + threads - 1) / threads : Long.MAX_VALUE;
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        SplittableRandom seeds = new SplittableRandom(w.seed);
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom rnd = seeds.split();
+            workers.execute(() -> {
+                long due = System.nanoTime();
+                for (long i = 0; i < opsPerThread; i++) {
+                    if (intervalNanos > 0) {
+                        due += intervalNanos;
+                        waitUntil(due);
+                    } else {
+                        due = System.nanoTime();
+                    }
+                    if (maxOps <= 0 && due - deadline >= 0) break;
+                    OpType op = w.nextOp(rnd);
+                    int ia = w.nextAccount(rnd);
+                    int ib = w.nextAccount(rnd);
+                    // a self-transfer would be rejected and counted as an error; pick any other account instead
+                    if (op == OpType.TRANSFER && ia == ib && accNos.length > 1) {
+                        ib = (ia + 1 + rnd.nextInt(accNos.length - 1)) % accNos.length;
+                    }
+                    execute(op, due, accNos[ia], accNos[ib], 1 + rnd.nextInt(w.maxAmount), null, 0);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    // ------------------ Script replay ------------------ //
+
+    static List<String> readScript(String path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = in.readLine()) != null) lines.add(line);
+        }
+        return lines;
+    }
+
+    // Executes the script lines in order on the calling thread. Bad lines are reported and skipped.
+    public void runScript(List<String> lines, long ratePerSecond) {
+        long intervalNanos = ratePerSecond > 0 ? Math.max(1, 1_000_000_000L / ratePerSecond) : 0;
+        List<Integer> created = new ArrayList<>();
+        long due = System.nanoTime();
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n);
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            String[] f = line.split("\\s+");
+            try {
+                String cmd = f[0].toUpperCase();
+                if ("SLEEP".equals(cmd)) {
+                    Thread.sleep(Long.parseLong(f[1]));
+                    due = System.nanoTime();
+                    continue;
+                }
+                if (intervalNanos > 0) {
+                    due += intervalNanos;
+                    waitUntil(due);
+                } else {
+                    due = System.nanoTime();
+                }
+                OpType op = opFor(cmd);
+                switch (op) {
+                    case CREATE_ACCOUNT:
+                        execute(op, due, 0, 0, Double.parseDouble(f[3]), f[1], Integer.parseInt(f[2]));
+                        break;
+                    case TRANSFER:
+                        execute(op, due, account(f[1], created), account(f[2], created), Double.parseDouble(f[3]), null, 0);
+                        break;
+                    case FIND_ACCOUNT:
+                        execute(op, due, account(f[1], created), 0, 0, null, 0);
+                        break;
+                    default:
+                        execute(op, due, account(f[1], created), 0, Double.parseDouble(f[2]), null, 0);
+                }
+                if (op == OpType.CREATE_ACCOUNT) created.add(lastCreated);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) { // NumberFormatException, missing fields, unknown command
+                System.out.println("Script line " + (n + 1) + " skipped: " + lines.get(n) + " (" + e + ")");
+            }
+        }
+    }
+
+    private int lastCreated; // account number of the last CREATE, only used by runScript's thread
+
+    private static int account(String ref, List<Integer> created) {
+        if (ref.startsWith("@")) {
+            int i = Integer.parseInt(ref.substring(1));
+            if (i < 1 || i > created.size()) throw new IllegalArgumentException("No created account " + ref);
+            return created.get(i - 1);
+        }
+        return Integer.parseInt(ref);
+    }
+
+    // ------------------ Execution and reporting ------------------ //
+
+    private void execute(OpType op, long due, int acc, int toAcc, double amount, String name, int pin) {
+        int slot = op.ordinal();
+        boolean success;
+        try {
+            switch (op) {
+                case CREATE_ACCOUNT:
+                    Account a = bank.createAccount(name, pin, amount);
+                    success = a != null;
+                    lastCreated = success ? a.getAccountNumber() : -1;
+                    break;
+                case DEPOSIT:
+                    success = bank.deposit(acc, amount);
+                    break;
+                case WITHDRAW:
+                    success = bank.withdraw(acc, amount);
+                    break;
+                case TRANSFER:
+                    success = bank.transfer(acc, toAcc, amount);
+                    break;
+                default:
+                    success = bank.findAccount(acc).isPresent();
+            }
+        } catch (RuntimeException e) {
+            errors[slot].increment();
+            return;
+        } finally {
+            latency[slot].record(System.nanoTime() - due);
+        }
+        (success ? ok : rejected)[slot].increment();
+    }
+
+    private static void waitUntil(long due) {
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+    }
+
+    private static OpType opFor(String name) {
+        switch (name.toUpperCase()) {
+            case "CREATE": return OpType.CREATE_ACCOUNT;
+            case "DEPOSIT": return OpType.DEPOSIT;
+            case "WITHDRAW": return OpType.WITHDRAW;
+            case "TRANSFER": return OpType.TRANSFER;
+            case "FIND": return OpType.FIND_ACCOUNT;
+            default: throw new IllegalArgumentException("Unknown operation " + name);
+        }
+    }
+
+    private static int indexOf(OpType op) {
+        for (int i = 0; i < OPS.length; i++) {
+            if (OPS[i] == op) return i;
+        }
+        throw new IllegalArgumentException(op.toString());
+    }
+
+    public String report(double seconds) {
+        StringBuilder sb = new StringBuilder();
+        long total = 0;
+        sb.append(String.format("%-15s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "ok", "rejected", "errors", "ops/s", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)"));
+        for (OpType op : OPS) {
+            int i = op.ordinal();
+            LatencyHistogram h = latency[i];
+            if (h.getCount() == 0) continue;
+            total += h.getCount();
+            sb.append(String.format("%-15s %9d %9d %7d %9.1f %9.3f %9.3f %9.3f %9.3f%n",
+                    op, ok[i].sum(), rejected[i].sum(), errors[i].sum(), h.getCount() / seconds,
+                    h.getPercentile(50) / 1e6, h.getPercentile(90) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6));
+        }
+        sb.append(String.format("total %d operations in %.1fs = %.1f ops/s%n", total, seconds, total / seconds));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankconsole;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Database errors that mean a transaction lost a lock conflict and can simply be run again:
+// it was picked as a deadlock victim, failed serialization, or timed out waiting for a row lock.
+// BankJdbc retries those (at most MAX_RETRIES times) after a short random delay, so that colliding
+// transactions don't collide again on the next attempt.
+final class LockConflicts {
+
+    // extra attempts after the first (override with -Dbank.retry.max)
+    static final int MAX_RETRIES = Integer.getInteger("bank.retry.max", 4);
+    // upper bound of the delay before retry n is min(maxMs, baseMs * 2^(n-1))
+    static final long BASE_DELAY_MS = Long.getLong("bank.retry.baseMs", 5);
+    static final long MAX_DELAY_MS = Long.getLong("bank.retry.maxMs", 200);
+
+    private LockConflicts() {
+    }
+
+    // Looks at the whole chain (next exceptions of a batch, causes of a wrapped driver error).
+    static boolean isRetryable(SQLException e) {
+        Throwable t = e;
+        for (int depth = 0; t != null && depth < 16; depth++) {
+            if (t instanceof SQLTransactionRollbackException) return true;
+            if (t instanceof SQLException) {
+                SQLException s = (SQLException) t;
+                String state = s.getSQLState();
+                if ("40001".equals(state)       // serialization failure; MySQL and H2 deadlocks use it too
+                        || "40P01".equals(state)   // PostgreSQL deadlock
+                        || "HYT00".equals(state)) { // H2 lock timeout
+                    return true;
+                }
+                int code = s.getErrorCode();
+                if (code == 1213 || code == 1205) return true; // MySQL deadlock, lock wait timeout
+                t = s.getNextException() != null ? s.getNextException() : s.getCause();
+            } else {
+                t = t.getCause();
+            }
+        }
+        return false;
+    }
+
+    // Sleeps before retry number attempt (1-based): uniformly random up to the exponential bound ("full jitter").
+    static void backoff(int attempt) throws InterruptedException {
+        long bound = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt - 1, 20));
+        if (bound > 0) Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+}
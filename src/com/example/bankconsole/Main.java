@@ -1,14 +1,30 @@
 package com.example.bankconsole;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Headless modes: --load (synthetic workload) or --script <file>; see LoadDriver
+        if (args.length > 0 && ("--load".equals(args[0]) || "--script".equals(args[0]))) {
+            LoadDriver.main(args);
+            return;
+        }
+        if (args.length > 0 && "--verify-checkpoints".equals(args[0])) {
+            verifyCheckpoints();
+            return;
+        }
+
         // Use JDBC-backed bank
-        BankJdbc bank = new BankJdbc();
+        BankJdbc bank = openBank();
+        ReplicaSet replicas = bank.getReplicas();
+        if (args.length > 0 && "--server".equals(args[0])) {
+            serve(bank);
+            return;
+        }
         Scanner sc = new Scanner(System.in);
 
         try {
@@ -32,6 +48,62 @@ public class Main {
             }
         } finally {
             sc.close();
+            if (replicas != null) replicas.close();
+            DBConnection.shutdown();
+        }
+    }
+
+    // BankJdbc with the optional pieces the system properties ask for: account cache, metrics export,
+    // checkpoint job, hot accounts, read replicas.
+    private static BankJdbc openBank() {
+        BankJdbc bank = new BankJdbc();
+        int cacheSize = Integer.getInteger("bank.cache.size", 0);
+        if (cacheSize > 0) {
+            bank.setAccountCache(new AccountCache(cacheSize, Long.getLong("bank.cache.ttlMs", 5000)));
+        }
+        bank.getMetrics().registerMBean("main");
+        bank.getMetrics().startReporter(Long.getLong("bank.metrics.dumpSeconds", 0), System.out);
+        bank.getCheckpoints().startJob(Long.getLong("bank.checkpoint.everyMinutes", 0));
+        String hot = System.getProperty("bank.hotAccounts", "").trim();
+        if (!hot.isEmpty()) {
+            int slots = Integer.getInteger("bank.hot.slots", 16);
+            for (String accNo : hot.split(",")) {
+                if (!bank.setHotAccount(Integer.parseInt(accNo.trim()), slots)) {
+                    System.out.println("Warning: couldn't make account " + accNo.trim() + " a hot account.");
+                }
+            }
+        }
+        ReplicaSet replicas = ReplicaSet.fromSystemProperties(bank.getPool());
+        if (replicas != null) {
+            bank.setReplicas(replicas);
+            replicas.start();
+        }
+        return bank;
+    }
+
+    // Network mode (see BankServer); runs until the process is stopped.
+    private static void serve(BankJdbc bank) throws Exception {
+        BankServer server = BankServer.fromSystemProperties(bank);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (bank.getReplicas() != null) bank.getReplicas().close();
+            DBConnection.shutdown();
+        }));
+        System.out.println("Bank server listening on port " + server.getPort());
+        server.awaitClose();
+    }
+
+    // Checks every balance checkpoint against the ledger; exits with status 1 on a mismatch.
+    private static void verifyCheckpoints() throws SQLException {
+        try {
+            List<String> mismatches = new BankJdbc().getCheckpoints().verify();
+            for (String m : mismatches) System.out.println("MISMATCH " + m);
+            System.out.println(mismatches.isEmpty() ? "All balance checkpoints match the ledger."
+                                                    : mismatches.size() + " balance checkpoints don't match the ledger.");
+            if (!mismatches.isEmpty()) System.exit(1);
+        } finally {
+            DBConnection.shutdown();
         }
     }
 
@@ -75,15 +147,21 @@ public class Main {
         }
     }
 
-    private static void loginAndOperate(BankJdbc bank, Scanner sc) {
+    // The logged-in user works through a session so their own changes show up even when reads go to a replica.
+    private static void loginAndOperate(BankJdbc jdbc, Scanner sc) {
+        BankSession bank = jdbc.openSession();
         System.out.print("Account number: ");
         int accNo = readInt(sc);
 
         System.out.print("PIN: ");
         int pin = readInt(sc);
 
+        if (!bank.authenticate(accNo, pin)) {
+            System.out.println("Login failed: invalid account number or PIN.");
+            return;
+        }
         Optional<Account> opt = bank.findAccount(accNo);
-        if (!opt.isPresent() || !opt.get().checkPin(pin)) {
+        if (!opt.isPresent()) {
             System.out.println("Login failed: invalid account number or PIN.");
             return;
         }
@@ -124,21 +202,21 @@ public class Main {
         System.out.print("Choose: ");
     }
 
-    private static void doDeposit(BankJdbc bank, Scanner sc, int accNo) {
+    private static void doDeposit(BankSession bank, Scanner sc, int accNo) {
         System.out.print("Amount to deposit: ");
         double amt = readDouble(sc);
         boolean ok = bank.deposit(accNo, amt);
         System.out.println(ok ? "Deposit successful." : "Deposit failed.");
     }
 
-    private static void doWithdraw(BankJdbc bank, Scanner sc, int accNo) {
+    private static void doWithdraw(BankSession bank, Scanner sc, int accNo) {
         System.out.print("Amount to withdraw: ");
         double amt = readDouble(sc);
         boolean ok = bank.withdraw(accNo, amt);
         System.out.println(ok ? "Withdrawal successful." : "Insufficient funds or failed.");
     }
 
-    private static void doTransfer(BankJdbc bank, Scanner sc, int fromAcc) {
+    private static void doTransfer(BankSession bank, Scanner sc, int fromAcc) {
         System.out.print("To account #: ");
         int to = readInt(sc);
 
@@ -149,7 +227,7 @@ public class Main {
         System.out.println(ok ? "Transfer successful." : "Transfer failed. Check balance and account numbers.");
     }
 
-    private static void viewDetails(BankJdbc bank, int accNo) {
+    private static void viewDetails(BankSession bank, int accNo) {
         Optional<Account> opt = bank.findAccount(accNo);
         if (opt.isPresent()) {
             System.out.println(opt.get());
@@ -158,17 +236,18 @@ public class Main {
         }
     }
 
-    private static void viewTransactions(BankJdbc bank, int accNo) {
+    private static void viewTransactions(BankSession bank, int accNo) {
         Optional<Account> opt = bank.findAccount(accNo);
         if (opt.isPresent()) {
             System.out.println("=== Transactions ===");
-            List<Transaction> txs = bank.getTransactions(accNo);
-            if (txs == null || txs.isEmpty()) {
+            // stream rows straight to the console instead of loading the whole history
+            long[] count = {0};
+            bank.forEachTransaction(accNo, t -> {
+                System.out.println(t);
+                count[0]++;
+            });
+            if (count[0] == 0) {
                 System.out.println("No transactions.");
-            } else {
-                for (Transaction t : txs) {
-                    System.out.println(t);
-                }
             }
         } else {
             System.out.println("Account not found.");
@@ -177,13 +256,13 @@ public class Main {
 
     private static void listAllAccounts(BankJdbc bank) {
         System.out.println("All accounts:");
-        List<Account> all = bank.listAccounts();
-        if (all == null || all.isEmpty()) {
-            System.out.println("No accounts yet.");
-            return;
-        }
-        for (Account a : all) {
+        long[] count = {0};
+        bank.forEachAccount(a -> {
             System.out.println(a);
+            count[0]++;
+        });
+        if (count[0] == 0) {
+            System.out.println("No accounts yet.");
         }
     }
 
@@ -0,0 +1,16 @@
+package com.example.bankconsole;
+
+// Operations exposed by BankJdbc, used to key per-operation statistics.
+public enum OpType {
+    CREATE_ACCOUNT,
+    FIND_ACCOUNT,
+    AUTHENTICATE,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    BATCH,
+    LIST_ACCOUNTS,
+    GET_TRANSACTIONS,
+    REPORT,  // rollup queries
+    HOT_ACCOUNT  // setHotAccount and hot-account consolidation
+}
@@ -0,0 +1,63 @@
+package com.example.bankconsole;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded many-producer / one-consumer queue of LedgerEngine operations, in the style of the LMAX
+// Disruptor: a preallocated array of slots reused in a ring, a shared claim counter, and a per-slot
+// published sequence, so handing an operation over takes no lock and allocates nothing but its future.
+//
+// Producer: seq = claim(); fill slot(seq); publish(seq, slot).
+// Consumer: poll slot(next) until isPublished(slot, next), read it, then release(next) once done with it.
+final class OperationRing {
+
+    static final class Slot {
+        volatile long published = -1; // sequence of the operation in the slot, written last
+        byte op;                      // BankJournal record type
+        int account;
+        int toAccount;
+        double amount;
+        int pin;
+        String name;
+        CompletableFuture<?> result;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long released = -1; // last sequence the consumer is done with
+
+    OperationRing(int capacity) {
+        int n = 1;
+        while (n < capacity) n <<= 1; // power of two so we can mask instead of mod
+        slots = new Slot[n];
+        for (int i = 0; i < n; i++) slots[i] = new Slot();
+        mask = n - 1;
+    }
+
+    int capacity() { return slots.length; }
+
+    // Reserves the next sequence, waiting while the ring is full (the consumer is a whole lap behind).
+    long claim() {
+        long seq = claimed.incrementAndGet();
+        while (seq - released > slots.length) LockSupport.parkNanos(1_000);
+        return seq;
+    }
+
+    Slot slot(long seq) { return slots[(int) seq & mask]; }
+
+    void publish(long seq, Slot slot) { slot.published = seq; }
+
+    static boolean isPublished(Slot slot, long seq) { return slot.published == seq; }
+
+    // Everything up to seq has been claimed, i.e. no producer is between claim() and publish() beyond it.
+    long lastClaimed() { return claimed.get(); }
+
+    void release(long seq) {
+        Slot s = slot(seq);
+        s.name = null;
+        s.result = null;
+        released = seq;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.bankconsole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read replicas of the primary database, for BankJdbc's read-only queries.
+//
+// Lag is measured with a heartbeat: every heartbeatMillis the primary's replica_heartbeat row is set to
+// the current time, and each replica's copy of it is polled. A replica whose copy is older than
+// maxLagMillis is not used. A read that must see writes made up to time T (BankSession's read-your-writes)
+// only goes to a replica whose copy is newer than T: the heartbeat that carried that value was written
+// after those writes had committed, and replicas apply commits in order.
+// The heartbeat and the session use this JVM's clock, so run the heartbeat writer on the writing node.
+public class ReplicaSet {
+
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas;
+    private final long maxLagMillis;
+    private final long heartbeatMillis;
+    private final AtomicLongArray seen;    // heartbeat value last read from each replica (0 = unknown/down)
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private ScheduledExecutorService heartbeat;
+
+    public ReplicaSet(ConnectionPool primary, List<ConnectionPool> replicas, long maxLagMillis, long heartbeatMillis) {
+        if (heartbeatMillis <= 0) throw new IllegalArgumentException("Heartbeat interval must be positive.");
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.maxLagMillis = maxLagMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.seen = new AtomicLongArray(replicas.size());
+    }
+
+    // Replicas from -Dbank.replica.urls=url0,url1,... (same credentials and pool settings as DBConnection);
+    // staleness bound bank.replica.maxLagMs (default 2000), heartbeat every bank.replica.heartbeatMs (250).
+    // Returns null when no replica is configured.
+    public static ReplicaSet fromSystemProperties(ConnectionPool primary) {
+        String urls = System.getProperty("bank.replica.urls");
+        if (urls == null || urls.trim().isEmpty()) return null;
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : urls.split(",")) pools.add(DBConnection.createPool(url.trim()));
+        return new ReplicaSet(primary, pools,
+                Long.getLong("bank.replica.maxLagMs", 2000), Long.getLong("bank.replica.heartbeatMs", 250));
+    }
+
+    public List<ConnectionPool> getReplicas() { return Collections.unmodifiableList(replicas); }
+    public long getMaxLagMillis() { return maxLagMillis; }
+    public long getReplicaReads() { return replicaReads.sum(); }
+    public long getPrimaryReads() { return primaryReads.sum(); }
+
+    // Estimated lag of replica i in milliseconds, or -1 if its heartbeat couldn't be read.
+    public long getLagMillis(int i) {
+        long s = seen.get(i);
+        return s == 0 ? -1 : Math.max(0, System.currentTimeMillis() - s);
+    }
+
+    // Starts writing and polling the heartbeat on a daemon thread. The replica_heartbeat table comes from
+    // SchemaManager; replicas get it (and its updates) through replication.
+    public synchronized void start() {
+        if (heartbeat != null) return;
+        beat();
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-replica-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleAtFixedRate(this::beat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void beat() {
+        try (Connection con = primary.getConnection();
+             PreparedStatement pst = con.prepareStatement("UPDATE replica_heartbeat SET beat_millis = ? WHERE id = 1")) {
+            pst.setLong(1, System.currentTimeMillis());
+            pst.executeUpdate();
+        } catch (SQLException e) {
+            System.out.println("Warning: replica heartbeat failed: " + e.getMessage());
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection con = replicas.get(i).getConnection();
+                 PreparedStatement pst = con.prepareStatement("SELECT beat_millis FROM replica_heartbeat WHERE id = 1");
+                 ResultSet rs = pst.executeQuery()) {
+                seen.set(i, rs.next() ? rs.getLong(1) : 0);
+            } catch (SQLException e) {
+                seen.set(i, 0);
+            }
+        }
+    }
+
+    // Pool to read from: the next replica (round robin) that is within the staleness bound and has caught
+    // up past notBefore (epoch millis; 0 = no requirement), else the primary.
+    public ConnectionPool forRead(long notBefore) {
+        long oldest = System.currentTimeMillis() - maxLagMillis;
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, n));
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            long s = seen.get(i);
+            if (s != 0 && s >= oldest && s > notBefore) {
+                replicaReads.increment();
+                return replicas.get(i);
+            }
+        }
+        primaryReads.increment();
+        return primary;
+    }
+
+    // A replica that refused a connection is skipped until the next heartbeat finds it again.
+    void markDown(ConnectionPool replica) {
+        int i = replicas.indexOf(replica);
+        if (i >= 0) seen.set(i, 0);
+    }
+
+    public synchronized void close() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+        }
+        for (ConnectionPool p : replicas) p.close();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ReplicaSet{replicaReads=").append(getReplicaReads())
+                .append(", primaryReads=").append(getPrimaryReads()).append(", lagMs=[");
+        for (int i = 0; i < replicas.size(); i++) sb.append(i == 0 ? "" : ", ").append(getLagMillis(i));
+        return sb.append("]}").toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bankconsole;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts database round trips (statements executed plus commit/rollback) per operation,
+// so changes to the SQL issued by BankJdbc can be verified.
+public class RoundTripStats {
+    private final LongAdder[] operations = new LongAdder[OpType.values().length];
+    private final LongAdder[] roundTrips = new LongAdder[OpType.values().length];
+
+    public RoundTripStats() {
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new LongAdder();
+            roundTrips[i] = new LongAdder();
+        }
+    }
+
+    public void record(OpType op, int trips) {
+        operations[op.ordinal()].increment();
+        roundTrips[op.ordinal()].add(trips);
+    }
+
+    public long getOperations(OpType op) { return operations[op.ordinal()].sum(); }
+    public long getRoundTrips(OpType op) { return roundTrips[op.ordinal()].sum(); }
+
+    public double getAverage(OpType op) {
+        long ops = getOperations(op);
+        return ops == 0 ? 0.0 : (double) getRoundTrips(op) / ops;
+    }
+
+    public void reset() {
+        for (int i = 0; i < operations.length; i++) {
+            operations[i].reset();
+            roundTrips[i].reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RoundTrips{");
+        for (OpType op : OpType.values()) {
+            long ops = getOperations(op);
+            if (ops == 0) continue;
+            if (sb.length() > 11) sb.append(", ");
+            sb.append(op).append('=').append(String.format("%.2f", getAverage(op))).append(" x").append(ops);
+        }
+        return sb.append('}').toString();
+    }
+}
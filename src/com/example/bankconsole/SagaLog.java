@@ -0,0 +1,147 @@
+package com.example.bankconsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Durable log of cross-shard transfers, written by ShardedBankJdbc before and after each step.
+// One text line per state change: "<id> <STATE> <from> <to> <amount> <crc32>", fsynced before the
+// next step runs. On open, the last state of every saga is rebuilt; a line cut off by a crash
+// (bad checksum) ends the log. Once finished sagas make up most of the file it is rewritten with
+// only the unfinished ones.
+public class SagaLog {
+
+    public enum State {
+        BEGIN,      // logged before the debit
+        DEBITED,    // source debited; the credit is owed
+        COMPLETED,  // destination credited
+        REFUNDED,   // credit impossible, source refunded
+        ABORTED;    // debit rejected or never applied
+
+        public boolean isFinal() { return this == COMPLETED || this == REFUNDED || this == ABORTED; }
+    }
+
+    public static final class Entry {
+        final String id;
+        final State state;
+        final int from;
+        final int to;
+        final double amount;
+
+        Entry(String id, State state, int from, int to, double amount) {
+            this.id = id;
+            this.state = state;
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+        }
+
+        public String getId() { return id; }
+        public State getState() { return state; }
+        public int getFrom() { return from; }
+        public int getTo() { return to; }
+        public double getAmount() { return amount; }
+    }
+
+    private static final long COMPACT_BYTES = 1 << 20;
+
+    private final File file;
+    private FileChannel channel;
+    private final Map<String, Entry> open = new LinkedHashMap<>(); // unfinished sagas, guarded by this
+
+    public SagaLog(File file) throws IOException {
+        this.file = file;
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+        long valid = load();
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(valid); // drop a torn last line
+        channel.position(valid);
+    }
+
+    // Returns the length of the intact prefix: complete lines with a valid checksum.
+    private long load() throws IOException {
+        if (!file.exists()) return 0;
+        byte[] data = Files.readAllBytes(file.toPath());
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != '\n') continue;
+            Entry e = parse(new String(data, start, i - start, StandardCharsets.UTF_8));
+            if (e == null) break;
+            apply(e);
+            start = i + 1;
+        }
+        return start;
+    }
+
+    private static Entry parse(String line) {
+        int cut = line.lastIndexOf(' ');
+        if (cut < 0) return null;
+        try {
+            if (Long.parseLong(line.substring(cut + 1), 16) != crc(line.substring(0, cut))) return null;
+            String[] f = line.substring(0, cut).split(" ");
+            return new Entry(f[0], State.valueOf(f[1]), Integer.parseInt(f[2]), Integer.parseInt(f[3]), Double.parseDouble(f[4]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static long crc(String s) {
+        CRC32 crc = new CRC32();
+        crc.update(s.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private void apply(Entry e) {
+        if (e.state.isFinal()) open.remove(e.id);
+        else open.put(e.id, e);
+    }
+
+    // Records a state change and forces it to disk before returning.
+    public synchronized void append(String id, State state, int from, int to, double amount) throws IOException {
+        write(channel, new Entry(id, state, from, to, amount));
+        channel.force(false);
+        apply(new Entry(id, state, from, to, amount));
+        if (state.isFinal() && channel.size() > COMPACT_BYTES && open.size() * 256L < channel.size()) compact();
+    }
+
+    private static void write(FileChannel ch, Entry e) throws IOException {
+        String body = e.id + " " + e.state + " " + e.from + " " + e.to + " " + e.amount;
+        ByteBuffer buf = ByteBuffer.wrap((body + " " + Long.toHexString(crc(body)) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    // Rewrites the log with only the unfinished sagas (temp file + atomic rename).
+    private void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Entry e : open.values()) write(out, e);
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    // Sagas whose last logged state is BEGIN or DEBITED.
+    public synchronized List<Entry> unfinished() {
+        return new ArrayList<>(open.values());
+    }
+
+    public synchronized void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+}
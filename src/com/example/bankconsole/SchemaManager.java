@@ -0,0 +1,434 @@
+package com.example.bankconsole;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Versioned schema for BankJdbc. Each migration runs once, in order, and is recorded in schema_version.
+// Migrations are written to be re-runnable (IF NOT EXISTS, metadata checks), so a database that was set
+// up by hand ends up at the same version. Nodes starting at the same time take turns: migrate() holds a
+// database-wide lock (see lock) while it applies migrations.
+//
+// On MySQL the transactions table is range-partitioned by month of ts (partitions pYYYYMM plus a
+// catch-all pmax). ensurePartitions keeps future months split off ahead of time and archiveMonth moves
+// an old month out with a partition exchange instead of a bulk DELETE. Other databases keep a plain table.
+public class SchemaManager {
+
+    enum Dialect {
+        MYSQL("BIGINT AUTO_INCREMENT", "DOUBLE"),
+        H2("BIGINT AUTO_INCREMENT", "DOUBLE"),
+        POSTGRESQL("BIGSERIAL", "DOUBLE PRECISION"),
+        OTHER("BIGINT GENERATED BY DEFAULT AS IDENTITY", "DOUBLE PRECISION");
+
+        final String idColumn;
+        final String doubleType;
+
+        Dialect(String idColumn, String doubleType) {
+            this.idColumn = idColumn;
+            this.doubleType = doubleType;
+        }
+
+        static Dialect of(DatabaseMetaData md) throws SQLException {
+            String product = md.getDatabaseProductName().toLowerCase();
+            if (product.contains("mysql") || product.contains("mariadb")) return MYSQL;
+            if (product.contains("h2")) return H2;
+            if (product.contains("postgres")) return POSTGRESQL;
+            return OTHER;
+        }
+    }
+
+    private interface Step {
+        void apply(Connection con, Dialect dialect) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // months of empty partitions kept ahead of the current one (override with -Dbank.schema.monthsAhead)
+    static final int MONTHS_AHEAD = Integer.getInteger("bank.schema.monthsAhead", 3);
+    // how long migrate() waits for another node's migration (override with -Dbank.schema.lockTimeoutSeconds)
+    static final int LOCK_TIMEOUT_SECONDS = Integer.getInteger("bank.schema.lockTimeoutSeconds", 120);
+    // name of the MySQL lock and key of the PostgreSQL advisory lock held while migrating
+    private static final String LOCK_NAME = "bank_schema_migrate";
+    private static final long LOCK_KEY = 0x62616e6b4d696772L;
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        MIGRATIONS.add(new Migration(1, "accounts and transactions tables", (con, d) -> {
+            execute(con, "CREATE TABLE IF NOT EXISTS accounts ("
+                    + "account_number INT NOT NULL PRIMARY KEY, holder_name VARCHAR(100) NOT NULL, "
+                    + "pin INT NOT NULL, balance " + d.doubleType + " NOT NULL)");
+            execute(con, "CREATE TABLE IF NOT EXISTS transactions ("
+                    + "id " + d.idColumn + " NOT NULL, account_number INT NOT NULL, type VARCHAR(20) NOT NULL, "
+                    + "amount " + d.doubleType + " NOT NULL, balance_after " + d.doubleType + " NOT NULL, "
+                    + "ts TIMESTAMP NOT NULL, PRIMARY KEY (id))");
+        }));
+        // getTransactions, getTransactionsPage and forEachTransaction filter on account_number and order by
+        // (ts, id); with the selected columns in the index too they never touch the table rows.
+        MIGRATIONS.add(new Migration(2, "covering index for account history", (con, d) ->
+                createIndexIfMissing(con, "transactions", "idx_tx_account_history",
+                        "account_number, ts, id, type, amount, balance_after")));
+        MIGRATIONS.add(new Migration(3, "account_sequence table", (con, d) ->
+                execute(con, "CREATE TABLE IF NOT EXISTS account_sequence ("
+                        + "name VARCHAR(32) NOT NULL PRIMARY KEY, next_value INT NOT NULL)")));
+        MIGRATIONS.add(new Migration(4, "partition transactions by month (MySQL)", (con, d) -> {
+            if (d != Dialect.MYSQL || isPartitioned(con)) return;
+            // every unique key of a partitioned table must contain the partitioning column
+            execute(con, "ALTER TABLE transactions DROP PRIMARY KEY, ADD PRIMARY KEY (id, ts)");
+            YearMonth first = YearMonth.now();
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT MIN(ts) FROM transactions")) {
+                if (rs.next() && rs.getTimestamp(1) != null) {
+                    first = YearMonth.from(rs.getTimestamp(1).toLocalDateTime());
+                }
+            }
+            StringBuilder sql = new StringBuilder("ALTER TABLE transactions PARTITION BY RANGE (UNIX_TIMESTAMP(ts)) (");
+            for (YearMonth m = first; !m.isAfter(YearMonth.now().plusMonths(MONTHS_AHEAD)); m = m.plusMonths(1)) {
+                sql.append(partitionDef(m)).append(", ");
+            }
+            sql.append("PARTITION pmax VALUES LESS THAN MAXVALUE)");
+            execute(con, sql.toString());
+        }));
+        MIGRATIONS.add(new Migration(5, "balance_checkpoints table", (con, d) ->
+                execute(con, "CREATE TABLE IF NOT EXISTS balance_checkpoints ("
+                        + "account_number INT NOT NULL, as_of TIMESTAMP NOT NULL, balance " + d.doubleType + " NOT NULL, "
+                        + "PRIMARY KEY (account_number, as_of))")));
+        // Backfills from the existing ledger, so run it (like any migration) before other nodes start writing.
+        MIGRATIONS.add(new Migration(6, "daily_rollups table", (con, d) -> {
+            execute(con, "CREATE TABLE IF NOT EXISTS daily_rollups ("
+                    + "account_number INT NOT NULL, rollup_day DATE NOT NULL, type VARCHAR(20) NOT NULL, "
+                    + "tx_count BIGINT NOT NULL, amount_sum " + d.doubleType + " NOT NULL, "
+                    + "PRIMARY KEY (account_number, rollup_day, type))");
+            createIndexIfMissing(con, "daily_rollups", "idx_rollup_day", "rollup_day, type");
+            execute(con, "DELETE FROM daily_rollups");
+            execute(con, "INSERT INTO daily_rollups(account_number, rollup_day, type, tx_count, amount_sum) "
+                    + "SELECT account_number, CAST(ts AS DATE), type, COUNT(*), SUM(amount) FROM transactions "
+                    + "GROUP BY account_number, CAST(ts AS DATE), type");
+        }));
+        MIGRATIONS.add(new Migration(7, "saga_steps table", (con, d) ->
+                execute(con, "CREATE TABLE IF NOT EXISTS saga_steps ("
+                        + "saga_id VARCHAR(40) NOT NULL, step VARCHAR(16) NOT NULL, account_number INT NOT NULL, "
+                        + "amount " + d.doubleType + " NOT NULL, applied_at TIMESTAMP NOT NULL, PRIMARY KEY (saga_id, step))")));
+        MIGRATIONS.add(new Migration(8, "replica_heartbeat table", (con, d) -> {
+            execute(con, "CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT NOT NULL PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM replica_heartbeat")) {
+                rs.next();
+                if (rs.getInt(1) == 0) execute(con, "INSERT INTO replica_heartbeat(id, beat_millis) VALUES (1, 0)");
+            }
+        }));
+        MIGRATIONS.add(new Migration(9, "ledger_watermark table", (con, d) -> {
+            execute(con, "CREATE TABLE IF NOT EXISTS ledger_watermark (id INT NOT NULL PRIMARY KEY, last_seq BIGINT NOT NULL)");
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM ledger_watermark")) {
+                rs.next();
+                if (rs.getInt(1) == 0) execute(con, "INSERT INTO ledger_watermark(id, last_seq) VALUES (1, 0)");
+            }
+        }));
+        MIGRATIONS.add(new Migration(10, "account_slots table", (con, d) ->
+                execute(con, "CREATE TABLE IF NOT EXISTS account_slots ("
+                        + "account_number INT NOT NULL, slot INT NOT NULL, balance " + d.doubleType + " NOT NULL, "
+                        + "PRIMARY KEY (account_number, slot))")));
+        // Slot credits don't maintain daily_rollups; pending_since marks a slot's oldest credit not yet counted
+        // in them (see BankJdbc.consolidateHotAccounts). Existing slots are marked from the account's first
+        // ledger row, so their first consolidation rebuilds the account's rollups in full, once.
+        MIGRATIONS.add(new Migration(11, "account_slots.pending_since column", (con, d) -> {
+            addColumnIfMissing(con, "account_slots", "pending_since", "TIMESTAMP NULL");
+            execute(con, "UPDATE account_slots SET pending_since = (SELECT MIN(t.ts) FROM transactions t "
+                    + "WHERE t.account_number = account_slots.account_number) WHERE pending_since IS NULL");
+        }));
+        // A hot account's ledger rows have no balance_after (see BankJdbc.setHotAccount). On MySQL this rebuilds
+        // the transactions table, so run it in a quiet period on a large ledger.
+        MIGRATIONS.add(new Migration(12, "nullable transactions.balance_after", (con, d) ->
+                execute(con, d == Dialect.MYSQL
+                        ? "ALTER TABLE transactions MODIFY balance_after " + d.doubleType + " NULL"
+                        : "ALTER TABLE transactions ALTER COLUMN balance_after DROP NOT NULL")));
+    }
+
+    private final ConnectionPool pool;
+
+    public SchemaManager(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Applies every migration newer than the recorded version; on MySQL also tops up future partitions.
+    // Runs under the migration lock, reading the version only once it holds it, so a node that waited
+    // applies just what the other one didn't. Returns the version the schema is at afterwards.
+    public int migrate() throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            Dialect dialect = Dialect.of(con.getMetaData());
+            execute(con, "CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INT NOT NULL PRIMARY KEY, description VARCHAR(200) NOT NULL, applied_at TIMESTAMP NOT NULL)");
+            SchemaLock lock = lock(con, dialect);
+            try {
+                int current = currentVersion(con);
+                for (Migration m : MIGRATIONS) {
+                    if (m.version <= current) continue;
+                    m.step.apply(con, dialect);
+                    recordVersion(con, m);
+                    System.out.println("Schema migrated to version " + m.version + ": " + m.description);
+                    current = m.version;
+                }
+                if (dialect == Dialect.MYSQL) ensurePartitions(con, MONTHS_AHEAD);
+                return current;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private interface SchemaLock {
+        void release() throws SQLException;
+    }
+
+    // Takes the lock that serializes migrate() across nodes, waiting up to LOCK_TIMEOUT_SECONDS.
+    // MySQL (GET_LOCK) and PostgreSQL (pg_advisory_lock) have session-level locks that DDL doesn't release,
+    // held on con itself. Elsewhere a row of schema_lock is locked from a second connection: the DDL on con
+    // would commit a row lock taken on con.
+    private SchemaLock lock(Connection con, Dialect dialect) throws SQLException {
+        String timeout = "Timed out after " + LOCK_TIMEOUT_SECONDS + " s waiting for another node's schema migration";
+        if (dialect == Dialect.MYSQL) {
+            try (PreparedStatement pst = con.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                pst.setString(1, LOCK_NAME);
+                pst.setInt(2, LOCK_TIMEOUT_SECONDS);
+                try (ResultSet rs = pst.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) throw new SQLException(timeout);
+                }
+            }
+            return () -> {
+                try (PreparedStatement pst = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    pst.setString(1, LOCK_NAME);
+                    pst.executeQuery().close();
+                }
+            };
+        }
+        if (dialect == Dialect.POSTGRESQL) {
+            // pg_advisory_lock would wait without a limit; poll the try variant instead
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(LOCK_TIMEOUT_SECONDS);
+            while (!queryBoolean(con, "SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+                if (System.nanoTime() - deadline > 0) throw new SQLException(timeout);
+                pause();
+            }
+            return () -> queryBoolean(con, "SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+        }
+        execute(con, "CREATE TABLE IF NOT EXISTS schema_lock (id INT NOT NULL PRIMARY KEY)");
+        try {
+            execute(con, "INSERT INTO schema_lock(id) VALUES (1)");
+        } catch (SQLException e) {
+            // another node inserted it first
+            if (!queryBoolean(con, "SELECT COUNT(*) FROM schema_lock WHERE id = 1")) throw e;
+        }
+        Connection holder = pool.getConnection();
+        try {
+            holder.setAutoCommit(false);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(LOCK_TIMEOUT_SECONDS);
+            while (true) {
+                try {
+                    queryBoolean(holder, "SELECT id FROM schema_lock WHERE id = 1 FOR UPDATE");
+                    break;
+                } catch (SQLException e) {
+                    // the database's own lock wait ran out first; keep waiting up to ours
+                    holder.rollback();
+                    if (System.nanoTime() - deadline > 0) throw new SQLException(timeout, e);
+                    pause();
+                }
+            }
+        } catch (SQLException e) {
+            holder.close();
+            throw e;
+        }
+        return holder::close; // the pool rolls back, which releases the row
+    }
+
+    private static boolean queryBoolean(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static void pause() throws SQLException {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the schema migration lock", e);
+        }
+    }
+
+    public int currentVersion() throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            return currentVersion(con);
+        }
+    }
+
+    private static int currentVersion(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void recordVersion(Connection con, Migration m) throws SQLException {
+        String ins = "INSERT INTO schema_version(version, description, applied_at) VALUES (?, ?, ?)";
+        try (PreparedStatement pst = con.prepareStatement(ins)) {
+            pst.setInt(1, m.version);
+            pst.setString(2, m.description);
+            pst.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            pst.executeUpdate();
+        } catch (SQLException e) {
+            // another node recorded it first; the step itself is idempotent
+            if (currentVersion(con) < m.version) throw e;
+        }
+    }
+
+    // ------------------ Partition maintenance (MySQL) ------------------ //
+
+    // Makes sure every month up to monthsAhead from now has its own partition, by splitting them off pmax.
+    // Cheap while pmax is empty, which is the case as long as this runs at least every monthsAhead months.
+    public void ensurePartitions(int monthsAhead) throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            if (Dialect.of(con.getMetaData()) == Dialect.MYSQL) ensurePartitions(con, monthsAhead);
+        }
+    }
+
+    private static void ensurePartitions(Connection con, int monthsAhead) throws SQLException {
+        List<String> names = partitionNames(con);
+        if (names.isEmpty()) return;
+        YearMonth last = null;
+        for (String n : names) {
+            if (!"pmax".equals(n)) last = parseMonth(n);
+        }
+        YearMonth target = YearMonth.now().plusMonths(monthsAhead);
+        if (last != null && !last.isBefore(target)) return;
+
+        StringBuilder sql = new StringBuilder("ALTER TABLE transactions REORGANIZE PARTITION pmax INTO (");
+        for (YearMonth m = last == null ? YearMonth.now() : last.plusMonths(1); !m.isAfter(target); m = m.plusMonths(1)) {
+            sql.append(partitionDef(m)).append(", ");
+        }
+        sql.append("PARTITION pmax VALUES LESS THAN MAXVALUE)");
+        execute(con, sql.toString());
+    }
+
+    // Moves one month of history out of transactions into its own table, transactions_archive_YYYYMM,
+    // by exchanging the partition (a metadata operation) and dropping the now empty partition.
+    // Returns false when the month has no partition or the database isn't partitioned.
+    public boolean archiveMonth(YearMonth month) throws SQLException {
+        String partition = partitionName(month);
+        String archive = "transactions_archive_" + partition.substring(1);
+        try (Connection con = pool.getConnection()) {
+            if (Dialect.of(con.getMetaData()) != Dialect.MYSQL || !partitionNames(con).contains(partition)) return false;
+            execute(con, "CREATE TABLE IF NOT EXISTS " + archive + " LIKE transactions");
+            if (isPartitioned(con, archive)) execute(con, "ALTER TABLE " + archive + " REMOVE PARTITIONING");
+            execute(con, "ALTER TABLE transactions EXCHANGE PARTITION " + partition + " WITH TABLE " + archive);
+            execute(con, "ALTER TABLE transactions DROP PARTITION " + partition);
+            return true;
+        }
+    }
+
+    public List<YearMonth> partitions() throws SQLException {
+        List<YearMonth> months = new ArrayList<>();
+        try (Connection con = pool.getConnection()) {
+            for (String n : partitionNames(con)) {
+                if (!"pmax".equals(n)) months.add(parseMonth(n));
+            }
+        }
+        return months;
+    }
+
+    private static List<String> partitionNames(Connection con) throws SQLException {
+        List<String> names = new ArrayList<>();
+        String q = "SELECT partition_name FROM information_schema.partitions "
+                 + "WHERE table_schema = DATABASE() AND table_name = 'transactions' AND partition_name IS NOT NULL "
+                 + "ORDER BY partition_ordinal_position";
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery(q)) {
+            while (rs.next()) names.add(rs.getString(1));
+        }
+        return names;
+    }
+
+    private static boolean isPartitioned(Connection con) throws SQLException {
+        return isPartitioned(con, "transactions");
+    }
+
+    private static boolean isPartitioned(Connection con, String table) throws SQLException {
+        String q = "SELECT COUNT(*) FROM information_schema.partitions "
+                 + "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL";
+        try (PreparedStatement pst = con.prepareStatement(q)) {
+            pst.setString(1, table);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    // Partition for month m holds rows with ts before the first day of the following month.
+    private static String partitionDef(YearMonth m) {
+        YearMonth next = m.plusMonths(1);
+        return String.format("PARTITION %s VALUES LESS THAN (UNIX_TIMESTAMP('%04d-%02d-01 00:00:00'))",
+                partitionName(m), next.getYear(), next.getMonthValue());
+    }
+
+    private static String partitionName(YearMonth m) {
+        return String.format("p%04d%02d", m.getYear(), m.getMonthValue());
+    }
+
+    private static YearMonth parseMonth(String partition) {
+        return YearMonth.of(Integer.parseInt(partition.substring(1, 5)), Integer.parseInt(partition.substring(5, 7)));
+    }
+
+    // ------------------ Helpers ------------------ //
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+
+    private static void createIndexIfMissing(Connection con, String table, String index, String columns) throws SQLException {
+        DatabaseMetaData md = con.getMetaData();
+        for (String t : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = md.getIndexInfo(con.getCatalog(), null, t, false, false)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) return;
+                }
+            }
+        }
+        execute(con, "CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+    }
+
+    private static void addColumnIfMissing(Connection con, String table, String column, String definition) throws SQLException {
+        DatabaseMetaData md = con.getMetaData();
+        for (String t : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = md.getColumns(con.getCatalog(), null, t, null)) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) return;
+                }
+            }
+        }
+        execute(con, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+}
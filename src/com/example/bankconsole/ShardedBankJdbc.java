@@ -0,0 +1,233 @@
+package com.example.bankconsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Spreads accounts over several databases. Shard i of n owns the account numbers congruent to i modulo n
+// (each shard's AccountNumberAllocator hands out only those), so routing needs no lookup table.
+// Everything that touches one account, and transfers between two accounts of the same shard, run on that
+// shard's BankJdbc exactly as in the unsharded case.
+//
+// A transfer between shards is a saga of local transactions, each recorded in the SagaLog before the next
+// one starts:
+//   BEGIN -> debit source (saga step DEBIT) -> DEBITED -> credit destination (CREDIT) -> COMPLETED
+// If the credit is rejected (destination gone), the source is refunded (REFUND) and the saga ends REFUNDED.
+// Steps are idempotent through the saga_steps table on each shard, so recover() can simply re-drive every
+// unfinished saga after a crash. While a saga runs the money is visible on neither account.
+// A saga that fails half way (database error after the debit) is finished by a background job that runs
+// recover() every bank.shards.recoverMs.
+public class ShardedBankJdbc implements BankOperations {
+
+    // how often unfinished sagas are re-driven (override with -Dbank.shards.recoverMs; 0 = only on startup)
+    static final long RECOVERY_PERIOD_MS = Long.getLong("bank.shards.recoverMs", 5000);
+
+    private final List<BankJdbc> shards = new ArrayList<>();
+    private final SagaLog sagaLog;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet(); // sagas being driven by a caller
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private ScheduledExecutorService recoveryJob;
+
+    public ShardedBankJdbc(List<ConnectionPool> pools, File sagaLogFile) throws IOException {
+        if (pools.isEmpty()) throw new IllegalArgumentException("Need at least one shard.");
+        for (int i = 0; i < pools.size(); i++) {
+            shards.add(new BankJdbc(pools.get(i), ConcurrencyMode.STRIPED_LOCKS, pools.size(), i));
+        }
+        this.sagaLog = new SagaLog(sagaLogFile);
+        int resolved = recover();
+        if (resolved > 0) System.out.println("Finished " + resolved + " interrupted cross-shard transfers.");
+        startRecoveryJob(RECOVERY_PERIOD_MS);
+    }
+
+    // Shards from -Dbank.shards.urls=url0,url1,... (same credentials and pool settings as DBConnection),
+    // with the saga log at -Dbank.shards.sagaLog (default data/sagas.log).
+    public static ShardedBankJdbc fromSystemProperties() throws IOException {
+        String urls = System.getProperty("bank.shards.urls");
+        if (urls == null || urls.trim().isEmpty()) throw new IllegalStateException("bank.shards.urls is not set.");
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : urls.split(",")) pools.add(DBConnection.createPool(url.trim()));
+        return new ShardedBankJdbc(pools, new File(System.getProperty("bank.shards.sagaLog", "data/sagas.log")));
+    }
+
+    public int getShardCount() { return shards.size(); }
+    public List<BankJdbc> getShards() { return Collections.unmodifiableList(shards); }
+
+    public BankJdbc shardFor(int accNo) {
+        return shards.get(Math.floorMod(accNo, shards.size()));
+    }
+
+    // New accounts go to the shards in turn.
+    @Override
+    public Account createAccount(String holderName, int pin, double initialDeposit) {
+        int i = Math.floorMod(nextShard.getAndIncrement(), shards.size());
+        return shards.get(i).createAccount(holderName, pin, initialDeposit);
+    }
+
+    @Override
+    public Optional<Account> findAccount(int accNo) {
+        return shardFor(accNo).findAccount(accNo);
+    }
+
+    public boolean authenticate(int accNo, int pin) {
+        return shardFor(accNo).authenticate(accNo, pin);
+    }
+
+    @Override
+    public boolean deposit(int accNo, double amount) {
+        return shardFor(accNo).deposit(accNo, amount);
+    }
+
+    @Override
+    public boolean withdraw(int accNo, double amount) {
+        return shardFor(accNo).withdraw(accNo, amount);
+    }
+
+    public List<Transaction> getTransactions(int accNo) {
+        return shardFor(accNo).getTransactions(accNo);
+    }
+
+    // Visits the accounts of each shard in turn (account-number order within a shard).
+    public boolean forEachAccount(Consumer<Account> action) {
+        boolean ok = true;
+        for (BankJdbc shard : shards) ok &= shard.forEachAccount(action);
+        return ok;
+    }
+
+    // Returns true once the money has arrived, false otherwise. Use transferOutcome to tell a transfer that
+    // didn't happen from one that is still pending.
+    @Override
+    public boolean transfer(int fromAcc, int toAcc, double amount) {
+        return transferOutcome(fromAcc, toAcc, amount) == SagaLog.State.COMPLETED;
+    }
+
+    // COMPLETED if the money has arrived; ABORTED if nothing was moved (also for a rejected same-shard transfer);
+    // REFUNDED if the source was debited and refunded. BEGIN means the saga failed half way and its outcome
+    // isn't known yet: the money may be debited and in flight, and the recovery job (or recover()) will
+    // complete or undo it.
+    public SagaLog.State transferOutcome(int fromAcc, int toAcc, double amount) {
+        BankJdbc src = shardFor(fromAcc);
+        BankJdbc dst = shardFor(toAcc);
+        if (src == dst) return src.transfer(fromAcc, toAcc, amount) ? SagaLog.State.COMPLETED : SagaLog.State.ABORTED;
+        if (!Double.isFinite(amount) || amount <= 0) return SagaLog.State.ABORTED;
+        if (!dst.findAccount(toAcc).isPresent()) return SagaLog.State.ABORTED; // cheap check; the saga still handles a race
+
+        String id = UUID.randomUUID().toString();
+        inFlight.add(id);
+        try {
+            sagaLog.append(id, SagaLog.State.BEGIN, fromAcc, toAcc, amount);
+        } catch (IOException e) {
+            System.out.println("Transfer failed: " + e.getMessage());
+            inFlight.remove(id);
+            return SagaLog.State.ABORTED; // nothing was debited without a BEGIN record
+        }
+        try {
+            return drive(id, SagaLog.State.BEGIN, fromAcc, toAcc, amount);
+        } catch (IOException | SQLException e) {
+            System.out.println("Transfer " + id + " is pending, it will be completed or refunded in the background: "
+                    + e.getMessage());
+            return SagaLog.State.BEGIN;
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    // Runs a saga forward from the given logged state to a final state, which it returns.
+    private SagaLog.State drive(String id, SagaLog.State state, int fromAcc, int toAcc, double amount)
+            throws IOException, SQLException {
+        BankJdbc src = shardFor(fromAcc);
+        BankJdbc dst = shardFor(toAcc);
+        if (state == SagaLog.State.BEGIN) {
+            BankJdbc.StepResult debit = src.applySagaStep(id, "DEBIT", fromAcc, "TRANSFER_OUT", amount, true);
+            if (debit == BankJdbc.StepResult.REJECTED) {
+                sagaLog.append(id, SagaLog.State.ABORTED, fromAcc, toAcc, amount);
+                return SagaLog.State.ABORTED;
+            }
+            sagaLog.append(id, SagaLog.State.DEBITED, fromAcc, toAcc, amount);
+        }
+        BankJdbc.StepResult credit = dst.applySagaStep(id, "CREDIT", toAcc, "TRANSFER_IN", amount, false);
+        if (credit == BankJdbc.StepResult.REJECTED) {
+            if (src.applySagaStep(id, "REFUND", fromAcc, "TRANSFER_REFUND", amount, false) == BankJdbc.StepResult.REJECTED) {
+                throw new SQLException("Refund of transfer " + id + " to account " + fromAcc + " was rejected");
+            }
+            sagaLog.append(id, SagaLog.State.REFUNDED, fromAcc, toAcc, amount);
+            return SagaLog.State.REFUNDED;
+        }
+        sagaLog.append(id, SagaLog.State.COMPLETED, fromAcc, toAcc, amount);
+        return SagaLog.State.COMPLETED;
+    }
+
+    // Finishes every saga the log shows as unfinished and no caller is driving right now: one still at BEGIN
+    // is continued if its debit committed and aborted otherwise; one at DEBITED gets its credit (or refund).
+    // Called on construction; safe to call again at any time, e.g. periodically. Returns the sagas finished.
+    public int recover() {
+        int finished = 0;
+        for (SagaLog.Entry e : sagaLog.unfinished()) {
+            if (!inFlight.add(e.getId())) continue;
+            try {
+                SagaLog.State state = e.getState();
+                if (state == SagaLog.State.BEGIN) {
+                    if (!shardFor(e.getFrom()).sagaStepApplied(e.getId(), "DEBIT")) {
+                        sagaLog.append(e.getId(), SagaLog.State.ABORTED, e.getFrom(), e.getTo(), e.getAmount());
+                        finished++;
+                        continue;
+                    }
+                    sagaLog.append(e.getId(), SagaLog.State.DEBITED, e.getFrom(), e.getTo(), e.getAmount());
+                }
+                drive(e.getId(), SagaLog.State.DEBITED, e.getFrom(), e.getTo(), e.getAmount());
+                finished++;
+            } catch (IOException | SQLException ex) {
+                System.out.println("Recovery of transfer " + e.getId() + " failed, will retry: " + ex.getMessage());
+            } finally {
+                inFlight.remove(e.getId());
+            }
+        }
+        return finished;
+    }
+
+    public List<SagaLog.Entry> getUnfinishedTransfers() {
+        return sagaLog.unfinished();
+    }
+
+    // Runs recover() every periodMillis on a daemon thread (started by the constructor).
+    public synchronized void startRecoveryJob(long periodMillis) {
+        if (recoveryJob != null || periodMillis <= 0) return;
+        recoveryJob = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-saga-recovery");
+            t.setDaemon(true);
+            return t;
+        });
+        recoveryJob.scheduleWithFixedDelay(() -> {
+            int n = recover();
+            if (n > 0) System.out.println("Finished " + n + " interrupted cross-shard transfers.");
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopRecoveryJob() {
+        if (recoveryJob != null) {
+            recoveryJob.shutdownNow();
+            recoveryJob = null;
+        }
+    }
+
+    public void close() {
+        stopRecoveryJob();
+        try {
+            sagaLog.close();
+        } catch (IOException e) {
+            System.out.println("Error closing saga log: " + e.getMessage());
+        }
+        for (BankJdbc shard : shards) shard.getPool().close();
+    }
+}
@@ -1,43 +1,156 @@
 package com.example.bankconsole;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 
+// Amounts are held as long minor units (paise) and the time as epoch millis; the display
+// timestamp is only formatted when someone asks for it.
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
-    private final String type; // e.g., "DEPOSIT", "WITHDRAW", "TRANSFER_OUT", "TRANSFER_IN"
-    private final double amount;
-    private final String timestamp;
-    private final double balanceAfter;
-    
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // Serialized form is unchanged from the original String/double fields, so existing data files still load.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("type", String.class),
+            new ObjectStreamField("amount", double.class),
+            new ObjectStreamField("timestamp", String.class),
+            new ObjectStreamField("balanceAfter", double.class)
+    };
+
+    // type codes; anything else (e.g. new types written by other code into the DB) is registered on first sight
+    static final long NO_BALANCE = Long.MIN_VALUE;
+
+    static final byte OPEN = 0, DEPOSIT = 1, WITHDRAW = 2, TRANSFER_OUT = 3, TRANSFER_IN = 4;
+    private static volatile String[] typeNames = {"OPEN", "DEPOSIT", "WITHDRAW", "TRANSFER_OUT", "TRANSFER_IN"};
+
+    private byte type; // e.g., DEPOSIT, WITHDRAW, TRANSFER_OUT, TRANSFER_IN
+    private long amountMinor;
+    private long balanceAfterMinor; // NO_BALANCE when the ledger row has none (a hot account's, see BankJdbc)
+    private long epochMillis;
+    private transient String timestamp; // formatted lazily
 
     public Transaction(String type, double amount, double balanceAfter) {
+        this(type, amount, balanceAfter, System.currentTimeMillis());
+    }
+
+    // For operations replayed from the journal or loaded from the DB, which keep their original time
+    Transaction(String type, double amount, double balanceAfter, long epochMillis) {
+        this(typeCode(type), toMinor(amount), toMinor(balanceAfter), epochMillis);
+    }
+
+    Transaction(byte type, long amountMinor, long balanceAfterMinor, long epochMillis) {
         this.type = type;
-        this.amount = amount;
-        this.balanceAfter = balanceAfter;
-        this.timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        this.amountMinor = amountMinor;
+        this.balanceAfterMinor = balanceAfterMinor;
+        this.epochMillis = epochMillis;
     }
 
     // Add this constructor for DB-loaded rows:
     public Transaction(String type, double amount, double balanceAfter, String timestamp) {
-        this.type = type;
-        this.amount = amount;
-        this.balanceAfter = balanceAfter;
+        this(typeCode(type), toMinor(amount), toMinor(balanceAfter), parseMillis(timestamp));
         this.timestamp = timestamp;
     }
 
+    public String getType() { return typeName(type); }
+    public double getAmount() { return amountMinor / 100.0; }
+    // NaN when the balance after this transaction wasn't recorded (see hasBalanceAfter)
+    public double getBalanceAfter() { return hasBalanceAfter() ? balanceAfterMinor / 100.0 : Double.NaN; }
+    public boolean hasBalanceAfter() { return balanceAfterMinor != NO_BALANCE; }
+    public long getAmountMinor() { return amountMinor; }
+    public long getBalanceAfterMinor() { return balanceAfterMinor; }
+    public long getEpochMillis() { return epochMillis; }
 
-    public String getType() { return type; }
-    public double getAmount() { return amount; }
-    public String getTimestamp() { return timestamp; }
-    public double getBalanceAfter() { return balanceAfter; }
+    public String getTimestamp() {
+        String ts = timestamp;
+        if (ts == null) {
+            ts = format(epochMillis);
+            timestamp = ts;
+        }
+        return ts;
+    }
 
     @Override
     public String toString() {
-        return String.format("%s | %s | Rs.%.2f | Balance: Rs.%.2f", timestamp, type, amount, balanceAfter);
+        if (!hasBalanceAfter()) return String.format("%s | %s | Rs.%.2f | Balance: n/a", getTimestamp(), getType(), getAmount());
+        return String.format("%s | %s | Rs.%.2f | Balance: Rs.%.2f", getTimestamp(), getType(), getAmount(), getBalanceAfter());
+    }
+
+    // ------------------ Encoding helpers ------------------ //
 
+    static long toMinor(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static String format(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(FORMAT);
+    }
+
+    private static long parseMillis(String timestamp) {
+        try {
+            return LocalDateTime.parse(timestamp.trim().replace(' ', 'T'))
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException | NullPointerException e) {
+            return 0L;
+        }
+    }
+
+    static String typeName(byte code) {
+        String[] names = typeNames;
+        return code >= 0 && code < names.length ? names[code] : "UNKNOWN";
+    }
+
+    static String[] typeNames() {
+        return typeNames.clone();
+    }
+
+    static byte typeCode(String name) {
+        String[] names = typeNames;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return (byte) i;
+        }
+        return registerType(name);
+    }
+
+    private static synchronized byte registerType(String name) {
+        String[] names = typeNames;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return (byte) i;
+        }
+        if (names.length > Byte.MAX_VALUE) throw new IllegalStateException("Too many transaction types");
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = name;
+        typeNames = grown;
+        return (byte) names.length;
+    }
+
+    // ------------------ Serialization ------------------ //
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField f = out.putFields();
+        f.put("type", getType());
+        f.put("amount", getAmount());
+        f.put("timestamp", getTimestamp());
+        f.put("balanceAfter", getBalanceAfter());
+        out.writeFields();
+    }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField f = in.readFields();
+        String ts = (String) f.get("timestamp", null);
+        type = typeCode((String) f.get("type", "UNKNOWN"));
+        amountMinor = toMinor(f.get("amount", 0.0));
+        double balanceAfter = f.get("balanceAfter", 0.0);
+        balanceAfterMinor = Double.isNaN(balanceAfter) ? NO_BALANCE : toMinor(balanceAfter);
+        epochMillis = parseMillis(ts);
+        timestamp = ts;
     }
 }
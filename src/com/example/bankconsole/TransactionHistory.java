@@ -0,0 +1,152 @@
+package com.example.bankconsole;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Append-only, columnar transaction history of one account.
+// Entries are stored in chunks of primitive arrays (type byte, amount, balance, time), about
+// 25 bytes per transaction instead of a Transaction object plus a formatted String.
+// Chunks double in size (8, 8, 16, 32, ...), so small accounts stay small and nothing is ever
+// copied when the history grows.
+//
+// One writer at a time (Account appends under its own lock); readers need no lock: chunk contents
+// are written before the volatile size is bumped, and chunks are never moved once created.
+public class TransactionHistory implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int FIRST_CHUNK_SHIFT = 3;
+    private static final int FIRST_CHUNK = 1 << FIRST_CHUNK_SHIFT;
+
+    private transient Chunk[] chunks = new Chunk[2];
+    private transient volatile int size;
+
+    private static final class Chunk {
+        final byte[] types;
+        final long[] amounts;
+        final long[] balances;
+        final long[] times;
+
+        Chunk(int capacity) {
+            types = new byte[capacity];
+            amounts = new long[capacity];
+            balances = new long[capacity];
+            times = new long[capacity];
+        }
+    }
+
+    // chunk k holds entries [base(k), base(k) + capacity(k)); base(k) == capacity(k) for k >= 1
+    private static int chunkOf(int index) {
+        return 32 - Integer.numberOfLeadingZeros(index >>> FIRST_CHUNK_SHIFT);
+    }
+
+    private static int chunkBase(int k) {
+        return k == 0 ? 0 : FIRST_CHUNK << (k - 1);
+    }
+
+    void add(byte type, long amountMinor, long balanceAfterMinor, long epochMillis) {
+        int n = size;
+        int c = chunkOf(n);
+        if (c == chunks.length) chunks = Arrays.copyOf(chunks, c + 4);
+        Chunk chunk = chunks[c];
+        if (chunk == null) {
+            chunk = new Chunk(c == 0 ? FIRST_CHUNK : chunkBase(c));
+            chunks[c] = chunk;
+        }
+        int i = n - chunkBase(c);
+        chunk.types[i] = type;
+        chunk.amounts[i] = amountMinor;
+        chunk.balances[i] = balanceAfterMinor;
+        chunk.times[i] = epochMillis;
+        size = n + 1; // publish
+    }
+
+    void add(Transaction t) {
+        add(Transaction.typeCode(t.getType()), t.getAmountMinor(), t.getBalanceAfterMinor(), t.getEpochMillis());
+    }
+
+    public int size() { return size; }
+
+    public Transaction get(int index) {
+        return entry(chunks, index);
+    }
+
+    private static Transaction entry(Chunk[] chunks, int index) {
+        int c = chunkOf(index);
+        Chunk chunk = chunks[c];
+        int i = index - chunkBase(c);
+        return new Transaction(chunk.types[i], chunk.amounts[i], chunk.balances[i], chunk.times[i]);
+    }
+
+    public long getBalanceAfterMinor(int index) {
+        int c = chunkOf(index);
+        return chunks[c].balances[index - chunkBase(c)];
+    }
+
+    public long getEpochMillis(int index) {
+        int c = chunkOf(index);
+        return chunks[c].times[index - chunkBase(c)];
+    }
+
+    // Read-only view of the entries present now; nothing is copied, entries are materialised on get().
+    public List<Transaction> view() {
+        int n = size;
+        Chunk[] cs = chunks;
+        return new View(cs, n);
+    }
+
+    private static final class View extends AbstractList<Transaction> implements RandomAccess {
+        private final Chunk[] chunks;
+        private final int size;
+
+        View(Chunk[] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            return entry(chunks, index);
+        }
+
+        @Override
+        public int size() { return size; }
+    }
+
+    // ------------------ Serialization ------------------ //
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        // type codes beyond the built-in ones are assigned per JVM, so store the names they stand for
+        out.writeObject(Transaction.typeNames());
+        int n = size;
+        out.writeInt(n);
+        for (int k = 0; k < n; k++) {
+            int c = chunkOf(k);
+            Chunk chunk = chunks[c];
+            int i = k - chunkBase(c);
+            out.writeByte(chunk.types[i]);
+            out.writeLong(chunk.amounts[i]);
+            out.writeLong(chunk.balances[i]);
+            out.writeLong(chunk.times[i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        String[] names = (String[]) in.readObject();
+        byte[] codes = new byte[names.length];
+        for (int i = 0; i < names.length; i++) codes[i] = Transaction.typeCode(names[i]);
+        int n = in.readInt();
+        chunks = new Chunk[n == 0 ? 2 : chunkOf(n - 1) + 1];
+        size = 0;
+        for (int k = 0; k < n; k++) {
+            add(codes[in.readByte()], in.readLong(), in.readLong(), in.readLong());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bankconsole;
+
+import java.util.Collections;
+import java.util.List;
+
+// One page of an account's history plus the cursor to fetch the next one.
+public final class TransactionPage {
+    private final List<Transaction> transactions;
+    private final HistoryCursor next;
+
+    public TransactionPage(List<Transaction> transactions, HistoryCursor next) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.next = next;
+    }
+
+    public List<Transaction> getTransactions() { return transactions; }
+
+    // null when this is the last page
+    public HistoryCursor getNext() { return next; }
+    public boolean hasMore() { return next != null; }
+}